@@ -0,0 +1,90 @@
+package diarsid.files;
+
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.Objects.isNull;
+
+/*
+ * Accumulates raw watch events and keeps only one net change per path:
+ *   create + modify -> create
+ *   create + delete -> nothing
+ *   delete + create -> modify
+ *   modify + delete -> delete
+ *   OVERFLOW is never merged away
+ */
+class CoalescedChanges {
+
+    private final Map<Path, WatchEvent.Kind<?>> kindsByPaths;
+
+    CoalescedChanges() {
+        this.kindsByPaths = new LinkedHashMap<>();
+    }
+
+    void add(WatchEvent.Kind<?> kind, Path path) {
+        WatchEvent.Kind<?> previousKind = this.kindsByPaths.get(path);
+
+        if ( isNull(previousKind) ) {
+            this.kindsByPaths.put(path, kind);
+            return;
+        }
+
+        WatchEvent.Kind<?> netKind = merge(previousKind, kind);
+
+        if ( isNull(netKind) ) {
+            this.kindsByPaths.remove(path);
+        }
+        else {
+            this.kindsByPaths.put(path, netKind);
+        }
+    }
+
+    private static WatchEvent.Kind<?> merge(WatchEvent.Kind<?> previous, WatchEvent.Kind<?> next) {
+        if ( previous == OVERFLOW || next == OVERFLOW ) {
+            return OVERFLOW;
+        }
+        else if ( previous == ENTRY_CREATE ) {
+            if ( next == ENTRY_DELETE ) {
+                return null;
+            }
+            else {
+                return ENTRY_CREATE;
+            }
+        }
+        else if ( previous == ENTRY_DELETE ) {
+            if ( next == ENTRY_DELETE ) {
+                return ENTRY_DELETE;
+            }
+            else {
+                return ENTRY_MODIFY;
+            }
+        }
+        else {
+            if ( next == ENTRY_DELETE ) {
+                return ENTRY_DELETE;
+            }
+            else {
+                return ENTRY_MODIFY;
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return this.kindsByPaths.isEmpty();
+    }
+
+    List<LocalDirectoryWatcher.Change> drain() {
+        List<LocalDirectoryWatcher.Change> changes = new ArrayList<>(this.kindsByPaths.size());
+        this.kindsByPaths.forEach((path, kind) -> changes.add(new LocalDirectoryWatcher.Change(kind, path)));
+        this.kindsByPaths.clear();
+        return changes;
+    }
+}
@@ -4,27 +4,79 @@ import java.util.Objects;
 
 public class Extension {
 
-    private final String nameLowerCase;
-    private final String nameUpperCase;
-    private final String dotNameLowerCase;
-    private final String dotNameUpperCase;
+    public enum Category {
+        IMAGE,
+        VIDEO,
+        AUDIO,
+        TEXT,
+        DOCUMENT,
+        SOURCE,
+        ARCHIVE,
+        EXECUTABLE,
+        UNKNOWN
+    }
+
+    private final String name;
+    private final Category category;
+    private final int index;
 
     public Extension(String name) {
-        this.nameLowerCase = name.toLowerCase();
-        this.nameUpperCase = name.toUpperCase();
-        this.dotNameLowerCase = "." + this.nameLowerCase;
-        this.dotNameUpperCase = "." + this.nameUpperCase;
+        this(name, Category.UNKNOWN);
+    }
+
+    public Extension(String name, Category category) {
+        this(name, category, -1);
+    }
+
+    Extension(String name, Category category, int index) {
+        this.name = folded(name);
+        this.category = category;
+        this.index = index;
+    }
+
+    /* case is folded per char, the same way as Extensions hash and hasName() compare names */
+    private static String folded(String name) {
+        char[] chars = new char[name.length()];
+        for ( int i = 0; i < chars.length; i++ ) {
+            chars[i] = Character.toLowerCase(name.charAt(i));
+        }
+        return new String(chars);
     }
 
     public String name() {
-        return this.nameLowerCase;
+        return this.name;
+    }
+
+    public Category category() {
+        return this.category;
+    }
+
+    /* dense number of extension in Extensions that has created it, -1 if created outside of Extensions */
+    public int index() {
+        return this.index;
     }
 
     public boolean matches(String fileName) {
-        return fileName.endsWith(nameLowerCase) ||
-                fileName.endsWith(nameUpperCase) ||
-                fileName.endsWith(dotNameLowerCase) ||
-                fileName.endsWith(dotNameUpperCase);
+        int length = this.name.length();
+        return fileName.regionMatches(true, fileName.length() - length, this.name, 0, length);
+    }
+
+    /* the same as name().equalsIgnoreCase(chars.substring(from, to)) but without substring */
+    boolean hasName(CharSequence chars, int from, int to) {
+        int length = this.name.length();
+        if ( length != to - from ) {
+            return false;
+        }
+
+        char c;
+        for ( int i = 0; i < length; i++ ) {
+            c = chars.charAt(from + i);
+            if ( this.name.charAt(i) != Character.toLowerCase(c) ) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
     @Override
@@ -32,11 +84,19 @@ public class Extension {
         if (this == o) return true;
         if (!(o instanceof Extension)) return false;
         Extension extension = (Extension) o;
-        return nameLowerCase.equals(extension.nameLowerCase);
+        return name.equals(extension.name);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(nameLowerCase);
+        return Objects.hash(name);
+    }
+
+    @Override
+    public String toString() {
+        return "Extension{" +
+                "name=" + name +
+                ", category=" + category +
+                '}';
     }
 }
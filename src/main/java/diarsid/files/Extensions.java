@@ -1,76 +1,206 @@
 package diarsid.files;
 
-import java.nio.file.Files;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
+import java.util.Locale;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 
 import diarsid.filesystem.api.File;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
+/*
+ * Index of extensions with case folded, so that 'JPG' and 'jpg' is the same Extension.
+ * Extension of a name is looked up without substring: hash is computed over chars after the last
+ * dot, then open addressing table is probed and candidates are compared char by char. New
+ * extension is put into a free slot of the table in place, only grown table is published as a new
+ * one. Lookups never lock: Extension is immutable, so a racing lookup sees either a free slot and
+ * rechecks under lock or a complete Extension.
+ * Extensions are numbered in order of appearance, so that per-extension counters can be arrays.
+ * Categories of known extensions are read from extension-categories table, lines of the table
+ * are 'category: ext ext ...', other extensions have UNKNOWN category.
+ */
 public class Extensions {
 
-    private final ConcurrentHashMap<String, Extension> extensionsByNames;
+    private static final String CATEGORIES_TABLE = "extension-categories";
+    private static final int INITIAL_CAPACITY = 512;
+
+    private final Object changes;
+    private volatile Extension[] table;
+    private int count;
 
     public Extensions() {
-        this.extensionsByNames = new ConcurrentHashMap<>();
+        this.changes = new Object();
+        this.table = new Extension[INITIAL_CAPACITY];
+        this.count = 0;
+
+        this.loadCategories();
+    }
+
+    private void loadCategories() {
+        InputStream categoriesTable = Extensions.class.getResourceAsStream(CATEGORIES_TABLE);
+        if ( isNull(categoriesTable) ) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(categoriesTable, UTF_8))) {
+            String line;
+            int colon;
+            Extension.Category category;
+            while ( (line = reader.readLine()) != null ) {
+                line = line.strip();
+                colon = line.indexOf(':');
+                if ( line.isEmpty() || line.startsWith("#") || colon < 0 ) {
+                    continue;
+                }
+
+                category = Extension.Category.valueOf(line.substring(0, colon).strip().toUpperCase(Locale.ROOT));
+                for ( String name : line.substring(colon + 1).strip().split("\\s+") ) {
+                    if ( ! name.isEmpty() ) {
+                        this.add(name, category);
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     public Extension getBy(String name) {
-        String ext = name.strip().toLowerCase();
-        return this.extensionsByNames.computeIfAbsent(ext, (ext1) -> new Extension(ext));
+        String stripped = name.strip();
+        return this.getOrAdd(stripped, 0, stripped.length());
     }
 
     public Optional<Extension> getFor(String fileName) {
-        String extensionString = extensionStringOrNullFrom(fileName);
-        if ( isNull(extensionString) || extensionString.isBlank() ) {
-            return Optional.empty();
-        }
-        else {
-            Extension extension = this.extensionsByNames.computeIfAbsent(extensionString, Extension::new);
-            return Optional.of(extension);
-        }
+        return Optional.ofNullable(this.extensionOrNullOf(fileName));
     }
 
+    /* path is classified by its name only, nothing is read from disk */
     public Optional<Extension> getFor(Path path) {
-        if ( Files.isDirectory(path) ) {
+        Path name = path.getFileName();
+        if ( isNull(name) ) {
             return Optional.empty();
         }
 
-        String extensionString = extensionStringOrNullFrom(path.getFileName().toString());
-        if ( isNull(extensionString) || extensionString.isBlank() ) {
-            return Optional.empty();
+        return this.getFor(name.toString());
+    }
+
+    public Optional<Extension> getFor(File file) {
+        return this.getFor(file.name());
+    }
+
+    /* for passes over many names - neither Optional nor substring is created for known extension */
+    public Extension.Category categoryOf(String fileName) {
+        Extension extension = this.extensionOrNullOf(fileName);
+
+        if ( isNull(extension) ) {
+            return Extension.Category.UNKNOWN;
         }
-        else {
-            Extension extension = this.extensionsByNames.computeIfAbsent(extensionString, Extension::new);
-            return Optional.of(extension);
+
+        return extension.category();
+    }
+
+    private Extension extensionOrNullOf(String fileName) {
+        int lastDotIndex = fileName.lastIndexOf('.');
+
+        if ( lastDotIndex < 0 ) {
+            return null;
+        }
+
+        int from = lastDotIndex + 1;
+        int to = fileName.length();
+
+        if ( isBlank(fileName, from, to) ) {
+            return null;
         }
+
+        return this.getOrAdd(fileName, from, to);
     }
 
-    public Optional<Extension> getFor(File file) {
-        String extensionString = extensionStringOrNullFrom(file);
-        if ( isNull(extensionString) || extensionString.isBlank() ) {
-            return Optional.empty();
+    private Extension getOrAdd(String chars, int from, int to) {
+        int hash = hash(chars, from, to);
+
+        Extension extension = find(this.table, chars, from, to, hash);
+        if ( nonNull(extension) ) {
+            return extension;
         }
-        else {
-            Extension extension = this.extensionsByNames.computeIfAbsent(extensionString, Extension::new);
-            return Optional.of(extension);
+
+        return this.add(chars.substring(from, to), Extension.Category.UNKNOWN);
+    }
+
+    private Extension add(String name, Extension.Category category) {
+        synchronized ( this.changes ) {
+            Extension[] table = this.table;
+
+            Extension existing = find(table, name, 0, name.length(), hash(name, 0, name.length()));
+            if ( nonNull(existing) ) {
+                return existing;
+            }
+
+            if ( (this.count + 1) * 2 > table.length ) {
+                Extension[] newTable = new Extension[table.length * 2];
+                for ( Extension oldExtension : table ) {
+                    if ( nonNull(oldExtension) ) {
+                        put(newTable, oldExtension);
+                    }
+                }
+                table = newTable;
+                this.table = newTable;
+            }
+
+            Extension extension = new Extension(name, category, this.count);
+            put(table, extension);
+            this.count++;
+
+            return extension;
         }
     }
 
-    private static String extensionStringOrNullFrom(File file) {
-        return extensionStringOrNullFrom(file.name());
+    private static Extension find(Extension[] table, String chars, int from, int to, int hash) {
+        int mask = table.length - 1;
+        Extension extension;
+        for ( int i = hash & mask; ; i = (i + 1) & mask ) {
+            extension = table[i];
+            if ( isNull(extension) ) {
+                return null;
+            }
+            if ( extension.hasName(chars, from, to) ) {
+                return extension;
+            }
+        }
     }
 
-    private static String extensionStringOrNullFrom(String fileName) {
-        int lastCommaIndex = fileName.lastIndexOf('.');
+    private static void put(Extension[] table, Extension extension) {
+        String name = extension.name();
+        int mask = table.length - 1;
+        int i = hash(name, 0, name.length()) & mask;
+        while ( nonNull(table[i]) ) {
+            i = (i + 1) & mask;
+        }
+        table[i] = extension;
+    }
 
-        if ( lastCommaIndex < 0 ) {
-            return null;
+    private static int hash(String chars, int from, int to) {
+        int hash = 0;
+        for ( int i = from; i < to; i++ ) {
+            hash = 31 * hash + Character.toLowerCase(chars.charAt(i));
         }
-        else {
-            return fileName.substring(lastCommaIndex + 1);
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean isBlank(String chars, int from, int to) {
+        for ( int i = from; i < to; i++ ) {
+            if ( ! Character.isWhitespace(chars.charAt(i)) ) {
+                return false;
+            }
         }
+        return true;
     }
 }
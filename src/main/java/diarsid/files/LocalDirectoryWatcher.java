@@ -7,11 +7,14 @@ import java.nio.file.Path;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import org.slf4j.Logger;
@@ -26,8 +29,11 @@ import static java.lang.String.format;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 import static diarsid.files.LocalDirectoryWatcher.CallbackSynchronization.NONE;
+import static diarsid.files.LocalDirectoryWatcher.Coalescing.NO_COALESCING;
 import static diarsid.support.concurrency.threads.ThreadsUtil.shutdownAndWait;
 
 public class LocalDirectoryWatcher extends AbstractStatefulDestroyableWorker implements PathBearer {
@@ -40,12 +46,76 @@ public class LocalDirectoryWatcher extends AbstractStatefulDestroyableWorker imp
         NONE
     }
 
+    public static class Coalescing {
+
+        public static final Coalescing NO_COALESCING = new Coalescing(Duration.ZERO);
+
+        private final Duration window;
+
+        private Coalescing(Duration window) {
+            this.window = window;
+        }
+
+        /*
+         * Events that come during the window after the first one are merged per path into one
+         * net change and are delivered together as one batch when the window ends.
+         */
+        public static Coalescing of(Duration window) {
+            if ( window.isNegative() ) {
+                throw new IllegalArgumentException("Coalescing window cannot be negative!");
+            }
+
+            if ( window.isZero() ) {
+                return NO_COALESCING;
+            }
+
+            return new Coalescing(window);
+        }
+
+        public Duration window() {
+            return this.window;
+        }
+
+        public boolean isEnabled() {
+            return ! this.window.isZero();
+        }
+    }
+
+    public static class Change implements PathBearer {
+
+        private final WatchEvent.Kind<?> kind;
+        private final Path path;
+
+        Change(WatchEvent.Kind<?> kind, Path path) {
+            this.kind = kind;
+            this.path = path;
+        }
+
+        public WatchEvent.Kind<?> kind() {
+            return this.kind;
+        }
+
+        @Override
+        public Path path() {
+            return this.path;
+        }
+
+        @Override
+        public String toString() {
+            return "Change{" +
+                    "kind=" + kind +
+                    ", path=" + path +
+                    '}';
+        }
+    }
+
     private static final Object STATIC_CALLBACK_MONITOR = new Object();
 
     private final Path path;
-    private final BiConsumer<WatchEvent.Kind<?>, Path> callback;
+    private final Consumer<List<Change>> callback;
     private final ExecutorService async;
     private final CallbackSynchronization sync;
+    private final Coalescing coalescing;
     private final Predicate<Path> filter;
     private WatchService watchService;
 
@@ -67,20 +137,37 @@ public class LocalDirectoryWatcher extends AbstractStatefulDestroyableWorker imp
             BiConsumer<WatchEvent.Kind<?>, Path> callback,
             CallbackSynchronization sync,
             Predicate<Path> filter) {
-        this(directory.path(), callback, sync, filter);
+        this(directory.path(), eachOf(callback), sync, NO_COALESCING, filter);
     }
 
     public LocalDirectoryWatcher(
             Path path,
             BiConsumer<WatchEvent.Kind<?>, Path> callback,
             CallbackSynchronization sync) {
-        this(path, callback, sync, (testedPath) -> true);
+        this(path, eachOf(callback), sync, NO_COALESCING, (testedPath) -> true);
     }
 
-    LocalDirectoryWatcher(
+    public LocalDirectoryWatcher(
             Path path,
             BiConsumer<WatchEvent.Kind<?>, Path> callback,
             CallbackSynchronization sync,
+            Coalescing coalescing) {
+        this(path, eachOf(callback), sync, coalescing, (testedPath) -> true);
+    }
+
+    public LocalDirectoryWatcher(
+            Path path,
+            Consumer<List<Change>> batchCallback,
+            CallbackSynchronization sync,
+            Coalescing coalescing) {
+        this(path, batchCallback, sync, coalescing, (testedPath) -> true);
+    }
+
+    LocalDirectoryWatcher(
+            Path path,
+            Consumer<List<Change>> callback,
+            CallbackSynchronization sync,
+            Coalescing coalescing,
             Predicate<Path> filter) {
         super(format("path[%s]", path));
         if ( ! Files.isDirectory(path) ) {
@@ -92,9 +179,18 @@ public class LocalDirectoryWatcher extends AbstractStatefulDestroyableWorker imp
                 LocalDirectoryWatcher.class.getSimpleName() + "[" + this.path.toString() + "].%s");
         this.async = Executors.newFixedThreadPool(1, threadFactory);;
         this.sync = sync;
+        this.coalescing = coalescing;
         this.filter = filter;
     }
 
+    static Consumer<List<Change>> eachOf(BiConsumer<WatchEvent.Kind<?>, Path> callback) {
+        return (changes) -> {
+            for ( Change change : changes ) {
+                callback.accept(change.kind, change.path);
+            }
+        };
+    }
+
     @Override
     public Path path() {
         return this.path;
@@ -126,13 +222,34 @@ public class LocalDirectoryWatcher extends AbstractStatefulDestroyableWorker imp
         WatchKey watchKey;
         boolean watchIsActive = true;
 
+        CoalescedChanges coalescedChanges = new CoalescedChanges();
+        long windowNanos = this.coalescing.window.toNanos();
+        long windowEnd = 0;
+        long windowRemains;
+
         Path filePath;
         Path dir;
         Path path;
 
         while ( super.isWorkingOrTransitingToWorking() && watchIsActive ) {
             try {
-                watchKey = this.watchService.take();
+                if ( coalescedChanges.isEmpty() ) {
+                    watchKey = this.watchService.take();
+                }
+                else {
+                    windowRemains = windowEnd - System.nanoTime();
+                    if ( windowRemains > 0 ) {
+                        watchKey = this.watchService.poll(windowRemains, NANOSECONDS);
+                    }
+                    else {
+                        watchKey = null;
+                    }
+
+                    if ( watchKey == null ) {
+                        this.deliver(coalescedChanges.drain());
+                        continue;
+                    }
+                }
             } catch (InterruptedException e) {
                 e.printStackTrace();
                 continue;
@@ -140,34 +257,38 @@ public class LocalDirectoryWatcher extends AbstractStatefulDestroyableWorker imp
 
             try {
                 List<WatchEvent<?>> watchEventList = watchKey.pollEvents();
+                List<Change> changes = new ArrayList<>(watchEventList.size());
                 for ( WatchEvent<?> watchEvent : watchEventList ) {
-                    filePath = (Path) watchEvent.context();
-                    dir = (Path) watchKey.watchable();
-                    path = dir.resolve(filePath).toAbsolutePath();
-
-                    if ( this.filter.test(path) ) {
-                        switch ( this.sync ) {
-                            case PER_JVM:
-                                synchronized (STATIC_CALLBACK_MONITOR) {
-                                    this.callback.accept(watchEvent.kind(), path);
-                                }
-                                break;
-                            case PER_WATCHER:
-                                synchronized ( this ) {
-                                    this.callback.accept(watchEvent.kind(), path);
-                                }
-                                break;
-                            case NONE:
-                                this.callback.accept(watchEvent.kind(), path);
-                                break;
-                            default:
-                                log.warn(format("%s '%s' in %s[%s] is not supported!",
-                                        CallbackSynchronization.class.getSimpleName(),
-                                        this.sync,
-                                        LocalDirectoryWatcher.class.getSimpleName(),
-                                        this.path));
+                    if ( watchEvent.kind() == OVERFLOW ) {
+                        /*
+                         * events have been lost and their paths are unknown, so OVERFLOW goes
+                         * with path of this watcher to let callback re-read what it watches
+                         */
+                        path = this.path();
+                    }
+                    else {
+                        filePath = (Path) watchEvent.context();
+                        dir = (Path) watchKey.watchable();
+                        path = dir.resolve(filePath).toAbsolutePath();
+
+                        if ( ! this.filter.test(path) ) {
+                            continue;
+                        }
+                    }
+
+                    if ( this.coalescing.isEnabled() ) {
+                        if ( coalescedChanges.isEmpty() ) {
+                            windowEnd = System.nanoTime() + windowNanos;
                         }
+                        coalescedChanges.add(watchEvent.kind(), path);
                     }
+                    else {
+                        changes.add(new Change(watchEvent.kind(), path));
+                    }
+                }
+
+                if ( ! changes.isEmpty() ) {
+                    this.deliver(changes);
                 }
 
                 watchIsActive = watchKey.reset();
@@ -176,6 +297,38 @@ public class LocalDirectoryWatcher extends AbstractStatefulDestroyableWorker imp
                 e.printStackTrace();
             }
         }
+
+        if ( ! coalescedChanges.isEmpty() ) {
+            this.deliver(coalescedChanges.drain());
+        }
+    }
+
+    private void deliver(List<Change> changes) {
+        if ( changes.isEmpty() ) {
+            return;
+        }
+
+        switch ( this.sync ) {
+            case PER_JVM:
+                synchronized (STATIC_CALLBACK_MONITOR) {
+                    this.callback.accept(changes);
+                }
+                break;
+            case PER_WATCHER:
+                synchronized ( this ) {
+                    this.callback.accept(changes);
+                }
+                break;
+            case NONE:
+                this.callback.accept(changes);
+                break;
+            default:
+                log.warn(format("%s '%s' in %s[%s] is not supported!",
+                        CallbackSynchronization.class.getSimpleName(),
+                        this.sync,
+                        LocalDirectoryWatcher.class.getSimpleName(),
+                        this.path));
+        }
     }
 
     @Override
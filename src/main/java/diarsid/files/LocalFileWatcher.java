@@ -40,7 +40,15 @@ public class LocalFileWatcher extends LocalDirectoryWatcher {
             Path path,
             BiConsumer<WatchEvent.Kind<?>, Path> callback,
             CallbackSynchronization sync) {
-        super(path.getParent(), callback, sync, (filePath) -> {
+        this(path, callback, sync, Coalescing.NO_COALESCING);
+    }
+
+    public LocalFileWatcher(
+            Path path,
+            BiConsumer<WatchEvent.Kind<?>, Path> callback,
+            CallbackSynchronization sync,
+            Coalescing coalescing) {
+        super(path.getParent(), eachOf(callback), sync, coalescing, (filePath) -> {
             return Files.isRegularFile(filePath) && filePath.equals(path);
         });
 
@@ -3,9 +3,11 @@ package diarsid.files.objects;
 import java.io.Closeable;
 import java.nio.file.Path;
 import java.nio.file.WatchEvent;
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
+import diarsid.files.LocalDirectoryWatcher;
 import diarsid.files.LocalFileWatcher;
 import diarsid.filesystem.api.Directory;
 
@@ -15,6 +17,9 @@ import static diarsid.files.LocalDirectoryWatcher.CallbackSynchronization.PER_WA
 
 public class InFileWatched<T> extends InFile<T> implements Closeable {
 
+    private static final LocalDirectoryWatcher.Coalescing COALESCING =
+            LocalDirectoryWatcher.Coalescing.of(Duration.ofMillis(50));
+
     private final LocalFileWatcher fileWatcher;
     private final Consumer<T> changeListener;
     private final AtomicReference<T> lastT;
@@ -27,7 +32,8 @@ public class InFileWatched<T> extends InFile<T> implements Closeable {
         this.fileWatcher = new LocalFileWatcher(
                 super.path().getParent().resolve(name),
                 this::acceptAndPropagateChange,
-                PER_WATCHER);
+                PER_WATCHER,
+                COALESCING);
 
         this.fileWatcher.startWork();
     }
@@ -40,7 +46,8 @@ public class InFileWatched<T> extends InFile<T> implements Closeable {
         this.fileWatcher = new LocalFileWatcher(
                 directory.file(name).orThrow().path(),
                 this::acceptAndPropagateChange,
-                PER_WATCHER);
+                PER_WATCHER,
+                COALESCING);
 
         this.fileWatcher.startWork();
     }
@@ -53,7 +60,8 @@ public class InFileWatched<T> extends InFile<T> implements Closeable {
         this.fileWatcher = new LocalFileWatcher(
                 directory.file(name).orThrow().path(),
                 this::acceptAndPropagateChange,
-                PER_WATCHER);
+                PER_WATCHER,
+                COALESCING);
 
         this.fileWatcher.startWork();
     }
@@ -66,7 +74,8 @@ public class InFileWatched<T> extends InFile<T> implements Closeable {
         this.fileWatcher = new LocalFileWatcher(
                 path,
                 this::acceptAndPropagateChange,
-                PER_WATCHER);
+                PER_WATCHER,
+                COALESCING);
 
         this.fileWatcher.startWork();
     }
@@ -13,6 +13,7 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.WatchEvent;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -106,7 +107,8 @@ public class FileObjectStore<K extends Serializable, T extends Identity<K>> impl
         this.watcher = new LocalDirectoryWatcher(
                 this.directory,
                 this::transmitChangeToListenersOrSkip,
-                LocalDirectoryWatcher.CallbackSynchronization.PER_WATCHER);
+                LocalDirectoryWatcher.CallbackSynchronization.PER_WATCHER,
+                LocalDirectoryWatcher.Coalescing.of(Duration.ofMillis(50)));
 
         this.watcher.startWork();
 
@@ -0,0 +1,67 @@
+package diarsid.filesystem.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import diarsid.support.objects.CommonEnum;
+
+import static java.util.Objects.isNull;
+
+/*
+ * Outcomes of copyAll, moveAll or removeAll for every entry in the order the entries were given.
+ */
+public class BatchResult {
+
+    public enum Outcome implements CommonEnum<Outcome> {
+        DONE,
+        FAILED
+    }
+
+    private final Map<FSEntry, Outcome> outcomes;
+
+    public BatchResult(List<FSEntry> entries, Map<FSEntry, Outcome> outcomes) {
+        Map<FSEntry, Outcome> orderedOutcomes = new LinkedHashMap<>();
+        Outcome outcome;
+        for ( FSEntry entry : entries ) {
+            outcome = outcomes.get(entry);
+            if ( isNull(outcome) ) {
+                outcome = Outcome.FAILED;
+            }
+            orderedOutcomes.put(entry, outcome);
+        }
+        this.outcomes = Collections.unmodifiableMap(orderedOutcomes);
+    }
+
+    public boolean isSuccessful() {
+        return ! this.outcomes.containsValue(Outcome.FAILED);
+    }
+
+    public Outcome outcomeOf(FSEntry entry) {
+        return this.outcomes.get(entry);
+    }
+
+    public Map<FSEntry, Outcome> outcomes() {
+        return this.outcomes;
+    }
+
+    public List<FSEntry> done() {
+        return this.entriesWith(Outcome.DONE);
+    }
+
+    public List<FSEntry> failed() {
+        return this.entriesWith(Outcome.FAILED);
+    }
+
+    private List<FSEntry> entriesWith(Outcome outcome) {
+        List<FSEntry> entries = new ArrayList<>();
+        this.outcomes.forEach((entry, entryOutcome) -> {
+            if ( entryOutcome == outcome ) {
+                entries.add(entry);
+            }
+        });
+        return entries;
+    }
+}
@@ -0,0 +1,31 @@
+package diarsid.filesystem.api;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Objects.nonNull;
+
+public class ChildPage {
+
+    private final List<FSEntry> entries;
+    private final ChildQuery next;
+
+    public ChildPage(List<FSEntry> entries, ChildQuery next) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.next = next;
+    }
+
+    public List<FSEntry> entries() {
+        return this.entries;
+    }
+
+    public boolean hasNext() {
+        return nonNull(this.next);
+    }
+
+    /* query that continues after this page, if there are more entries */
+    public Optional<ChildQuery> next() {
+        return Optional.ofNullable(this.next);
+    }
+}
@@ -0,0 +1,109 @@
+package diarsid.filesystem.api;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static java.lang.String.format;
+import static java.util.Objects.nonNull;
+
+/*
+ * Query for one page of directory children. Unsorted pages go in the order the directory is
+ * listed and are continued by count of already returned entries, so they are stable only while
+ * directory is not changed. Without filter, already returned children are skipped by their paths,
+ * before any entry is created for them. Sorted pages are continued after the last returned entry, entries
+ * equal by comparator are ordered by their paths.
+ * Every method returns a new instance, an instance itself is never changed.
+ */
+public class ChildQuery {
+
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    public static final ChildQuery DEFAULT = new ChildQuery(DEFAULT_PAGE_SIZE, entry -> true, null, null, 0);
+
+    private final int pageSize;
+    private final Predicate<FSEntry> filter;
+    private final Comparator<FSEntry> comparator;
+    private final FSEntry lastEntry;
+    private final long returnedCount;
+
+    private ChildQuery(
+            int pageSize,
+            Predicate<FSEntry> filter,
+            Comparator<FSEntry> comparator,
+            FSEntry lastEntry,
+            long returnedCount) {
+        this.pageSize = pageSize;
+        this.filter = filter;
+        this.comparator = comparator;
+        this.lastEntry = lastEntry;
+        this.returnedCount = returnedCount;
+    }
+
+    public static ChildQuery pagesOf(int pageSize) {
+        if ( pageSize < 1 ) {
+            throw new IllegalArgumentException(format("Page size %s is less than 1!", pageSize));
+        }
+
+        return new ChildQuery(pageSize, DEFAULT.filter, null, null, 0);
+    }
+
+    public ChildQuery filteredBy(Predicate<FSEntry> filter) {
+        return new ChildQuery(this.pageSize, filter, this.comparator, this.lastEntry, this.returnedCount);
+    }
+
+    public ChildQuery onlyFiles() {
+        return this.filteredBy(this.filter.and(FSEntry::isFile));
+    }
+
+    public ChildQuery onlyDirectories() {
+        return this.filteredBy(this.filter.and(FSEntry::isDirectory));
+    }
+
+    public ChildQuery sorted() {
+        return this.sortedBy(Comparator.naturalOrder());
+    }
+
+    public ChildQuery sortedBy(Comparator<FSEntry> comparator) {
+        return new ChildQuery(
+                this.pageSize, this.filter, comparator.thenComparing(FSEntry::path), this.lastEntry, this.returnedCount);
+    }
+
+    /* query for the page that follows given one */
+    public ChildQuery continuedAfter(List<FSEntry> page) {
+        if ( page.isEmpty() ) {
+            return this;
+        }
+
+        return new ChildQuery(
+                this.pageSize, this.filter, this.comparator, page.get(page.size() - 1), this.returnedCount + page.size());
+    }
+
+    public int pageSize() {
+        return this.pageSize;
+    }
+
+    public Predicate<FSEntry> filter() {
+        return this.filter;
+    }
+
+    public boolean isFiltered() {
+        return this.filter != DEFAULT.filter;
+    }
+
+    public boolean isSorted() {
+        return nonNull(this.comparator);
+    }
+
+    public Comparator<FSEntry> comparator() {
+        return this.comparator;
+    }
+
+    public FSEntry lastEntry() {
+        return this.lastEntry;
+    }
+
+    public long returnedCount() {
+        return this.returnedCount;
+    }
+}
@@ -0,0 +1,134 @@
+package diarsid.filesystem.api;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import diarsid.support.objects.CommonEnum;
+
+import static java.lang.StackWalker.Option.RETAIN_CLASS_REFERENCE;
+import static java.util.Objects.nonNull;
+
+/*
+ * Runtime diagnostics of file system operations.
+ *
+ * Every category counts its events and failures all the time - it costs a LongAdder increment.
+ * Tracing of category is off by default and can be switched on at runtime by enable(category) or
+ * on startup by system property diarsid.filesystem.diagnostics=remove,changes,... Traced messages
+ * are written to SLF4J logger diarsid.filesystem.diagnostics.<category> on DEBUG level, messages and
+ * stack origins are built only when category is enabled and logger accepts DEBUG.
+ */
+public final class Diagnostics {
+
+    public enum Category implements CommonEnum<Category> {
+        CHANGES,
+        WATCH,
+        COPY,
+        MOVE,
+        RENAME,
+        REMOVE,
+        IO;
+
+        private final Logger log;
+        private final LongAdder events;
+        private final LongAdder failures;
+        private volatile boolean enabled;
+
+        Category() {
+            this.log = LoggerFactory.getLogger("diarsid.filesystem.diagnostics." + this.name().toLowerCase());
+            this.events = new LongAdder();
+            this.failures = new LongAdder();
+            this.enabled = false;
+        }
+    }
+
+    public static final String PROPERTY = "diarsid.filesystem.diagnostics";
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(RETAIN_CLASS_REFERENCE);
+
+    static {
+        String categories = System.getProperty(PROPERTY);
+        if ( nonNull(categories) ) {
+            for ( String category : categories.split(",") ) {
+                category = category.trim();
+                if ( category.isEmpty() ) {
+                    continue;
+                }
+
+                try {
+                    enable(Category.valueOf(category.toUpperCase()));
+                }
+                catch (IllegalArgumentException e) {
+                    LoggerFactory.getLogger(Diagnostics.class).warn("Unknown diagnostics category: {}", category);
+                }
+            }
+        }
+    }
+
+    private Diagnostics() {}
+
+    public static void enable(Category category) {
+        category.enabled = true;
+    }
+
+    public static void disable(Category category) {
+        category.enabled = false;
+    }
+
+    public static boolean isEnabled(Category category) {
+        return category.enabled && category.log.isDebugEnabled();
+    }
+
+    public static long eventsOf(Category category) {
+        return category.events.sum();
+    }
+
+    public static long failuresOf(Category category) {
+        return category.failures.sum();
+    }
+
+    public static void resetCounters() {
+        for ( Category category : Category.values() ) {
+            category.events.reset();
+            category.failures.reset();
+        }
+    }
+
+    public static void event(Category category, Supplier<String> message) {
+        category.events.increment();
+
+        if ( isEnabled(category) ) {
+            category.log.debug(message.get());
+        }
+    }
+
+    public static void eventWithOrigin(Category category, Supplier<String> message) {
+        category.events.increment();
+
+        if ( isEnabled(category) ) {
+            category.log.debug("{}{}", message.get(), origin());
+        }
+    }
+
+    public static void failure(Category category, Exception e) {
+        category.failures.increment();
+
+        if ( isEnabled(category) ) {
+            category.log.warn(e.toString(), e);
+        }
+        else {
+            category.log.warn(e.toString());
+        }
+    }
+
+    private static String origin() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> frame.getDeclaringClass() != Diagnostics.class)
+                .filter(frame -> frame.getClassName().startsWith("diarsid"))
+                .map(frame -> System.lineSeparator() + "    " + frame.toStackTraceElement())
+                .collect(Collectors.joining()));
+    }
+}
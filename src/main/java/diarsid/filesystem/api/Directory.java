@@ -5,12 +5,17 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 import diarsid.filesystem.impl.local.LocalMachineDirectory;
 import diarsid.filesystem.impl.local.ProgressTrackerBack;
 import diarsid.support.objects.references.Result;
 
+import static java.util.Collections.emptyList;
+
 public interface Directory extends FSEntry {
 
     enum Edit {
@@ -78,6 +83,76 @@ public interface Directory extends FSEntry {
 
     void feedFiles(Consumer<List<File>> filesConsumer, Comparator<File> comparator);
 
+    ChildPage streamChildren(ChildQuery query);
+
+    /*
+     * Asynchronous variants of check* and feed* methods, they run on file system I/O threads.
+     * Cancellation of a returned future interrupts directory reading.
+     */
+    default CompletableFuture<Boolean> hasChildrenAsync() {
+        return this.fileSystem().async(() -> {
+            AtomicBoolean presence = new AtomicBoolean(false);
+            this.checkChildrenPresence(presence::set);
+            return presence.get();
+        });
+    }
+
+    default CompletableFuture<Boolean> hasDirectoriesAsync() {
+        return this.fileSystem().async(() -> {
+            AtomicBoolean presence = new AtomicBoolean(false);
+            this.checkDirectoriesPresence(presence::set);
+            return presence.get();
+        });
+    }
+
+    default CompletableFuture<Boolean> hasFilesAsync() {
+        return this.fileSystem().async(() -> {
+            AtomicBoolean presence = new AtomicBoolean(false);
+            this.checkFilesPresence(presence::set);
+            return presence.get();
+        });
+    }
+
+    default CompletableFuture<List<FSEntry>> childrenAsync() {
+        return this.childrenAsync(Comparator.naturalOrder());
+    }
+
+    default CompletableFuture<List<FSEntry>> childrenAsync(Comparator<FSEntry> comparator) {
+        return this.fileSystem().async(() -> {
+            AtomicReference<List<FSEntry>> children = new AtomicReference<>(emptyList());
+            this.feedChildren(children::set, comparator);
+            return children.get();
+        });
+    }
+
+    default CompletableFuture<List<Directory>> directoriesAsync() {
+        return this.directoriesAsync(Comparator.naturalOrder());
+    }
+
+    default CompletableFuture<List<Directory>> directoriesAsync(Comparator<Directory> comparator) {
+        return this.fileSystem().async(() -> {
+            AtomicReference<List<Directory>> directories = new AtomicReference<>(emptyList());
+            this.feedDirectories(directories::set, comparator);
+            return directories.get();
+        });
+    }
+
+    default CompletableFuture<List<File>> filesAsync() {
+        return this.filesAsync(Comparator.naturalOrder());
+    }
+
+    default CompletableFuture<List<File>> filesAsync(Comparator<File> comparator) {
+        return this.fileSystem().async(() -> {
+            AtomicReference<List<File>> files = new AtomicReference<>(emptyList());
+            this.feedFiles(files::set, comparator);
+            return files.get();
+        });
+    }
+
+    default CompletableFuture<ChildPage> streamChildrenAsync(ChildQuery query) {
+        return this.fileSystem().async(() -> this.streamChildren(query));
+    }
+
     void host(FSEntry newEntry, Consumer<Boolean> callback);
 
     void hostAll(List<FSEntry> newEntries, Consumer<Boolean> callback, ProgressTrackerBack<FSEntry> progressTracker);
@@ -129,4 +204,6 @@ public interface Directory extends FSEntry {
 
     void watch();
 
+    void watchTree(int depthLimit);
+
 }
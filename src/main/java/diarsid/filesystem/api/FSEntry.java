@@ -59,6 +59,18 @@ public interface FSEntry extends Comparable<FSEntry>, PathBearer {
 
     boolean isHidden();
 
+    /*
+     * Entry can carry attributes read once when it has been listed, see FileSystemSettings.AttributesMode.
+     * refresh() reads them again, isStale() tells that they are too old. Entries without
+     * attributes snapshot read everything from the file system on every call.
+     */
+    default void refresh() {
+    }
+
+    default boolean isStale() {
+        return false;
+    }
+
     boolean remove();
 
     boolean moveTo(Directory newPlace);
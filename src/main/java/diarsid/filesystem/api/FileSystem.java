@@ -4,6 +4,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
@@ -31,6 +33,14 @@ public interface FileSystem {
         return new LocalFileSystem(ignores, namedThreadSource, fileSystem);
     }
 
+    static FileSystem newInstance(
+            Ignores ignores,
+            NamedThreadSource namedThreadSource,
+            java.nio.file.FileSystem fileSystem,
+            FileSystemSettings settings) {
+        return new LocalFileSystem(ignores, namedThreadSource, fileSystem, settings);
+    }
+
     static String getNameFrom(Path path) {
         String name;
         Path fileName = path.getFileName();
@@ -114,12 +124,39 @@ public interface FileSystem {
             List<FSEntry> entries,
             ProgressTrackerBack<FSEntry> progressTracker);
 
+    BatchResult copyAllWithResult(
+            List<FSEntry> whatToCopy,
+            Directory parentDirectoryWhereToCopy,
+            ProgressTrackerBack<FSEntry> progressTracker);
+
+    BatchResult moveAllWithResult(
+            List<FSEntry> whatToMove,
+            Directory parentDirectoryWhereToMove,
+            ProgressTrackerBack<FSEntry> progressTracker);
+
+    BatchResult removeAllWithResult(
+            List<FSEntry> entries,
+            ProgressTrackerBack<FSEntry> progressTracker);
+
     boolean open(File file);
 
     void showInDefaultFileManager(FSEntry fsEntry);
 
     Stream<FSEntry> list(Directory directory); /* do not forget to close the stream! */
 
+    ChildPage listPage(Directory directory, ChildQuery query);
+
+    boolean hasChildren(Directory directory);
+
+    boolean hasDirectories(Directory directory);
+
+    boolean hasFiles(Directory directory);
+
+    long countChildren(Directory directory);
+
+    /* runs operation off the caller thread, cancellation of returned future interrupts operation */
+    <T> CompletableFuture<T> async(Callable<T> operation);
+
     Result<Directory> parentOf(FSEntry fsEntry);
 
     Result<Directory> firstExistingParentOf(Path path);
@@ -130,6 +167,26 @@ public interface FileSystem {
 
     long sizeOf(FSEntry fsEntry);
 
+    /*
+     * Size of the whole tree under directory, unlike sizeOf(FSEntry) that gives size of directory itself.
+     * Subtotals of watched subtrees are cached, shared with statsOf, and are recomputed only for changed branches.
+     */
+    TreeSize treeSizeOf(Directory directory);
+
+    default CompletableFuture<TreeSize> treeSizeOfAsync(Directory directory) {
+        return this.async(() -> this.treeSizeOf(directory));
+    }
+
+    /*
+     * Counts and sizes of files of the whole tree under directory grouped by extension or by its
+     * category. Subtotals of watched subtrees are cached, shared with treeSizeOf, and are recomputed only for changed branches.
+     */
+    <K> TreeStats<K> statsOf(Directory directory, TreeStats.GroupBy<K> groupBy);
+
+    default <K> CompletableFuture<TreeStats<K>> statsOfAsync(Directory directory, TreeStats.GroupBy<K> groupBy) {
+        return this.async(() -> this.statsOf(directory, groupBy));
+    }
+
     Extensions extensions();
 
     boolean isRoot(Directory directory);
@@ -146,6 +203,18 @@ public interface FileSystem {
 
     void watch(Directory directory);
 
+    /*
+     * Watches directory and all its subdirectories not deeper than depthLimit levels below it.
+     * Subdirectories created later inside of watched subtree are watched as well.
+     */
+    void watchTree(Directory directory, int depthLimit);
+
+    /*
+     * Stops watching of all directories and releases resources used for watching.
+     * Directories can be watched again after it.
+     */
+    void destroy();
+
     Result<LocalDateTime> creationTimeOf(Path path);
 
     default Result<LocalDateTime> creationTimeOf(PathBearer pathBearer) {
@@ -0,0 +1,336 @@
+package diarsid.filesystem.api;
+
+import java.time.Duration;
+
+import diarsid.support.objects.CommonEnum;
+
+import static java.lang.String.format;
+
+public class FileSystemSettings {
+
+    public static class ChangesDispatch {
+
+        public enum OverflowPolicy implements CommonEnum<OverflowPolicy> {
+            BLOCK,
+            DROP_OLDEST,
+            COALESCE
+        }
+
+        /*
+         * File operations wait until all listeners have processed their changes.
+         */
+        public static final ChangesDispatch AWAIT = new ChangesDispatch(false, 0, OverflowPolicy.BLOCK);
+
+        private final boolean async;
+        private final int capacity;
+        private final OverflowPolicy overflowPolicy;
+
+        private ChangesDispatch(boolean async, int capacity, OverflowPolicy overflowPolicy) {
+            this.async = async;
+            this.capacity = capacity;
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        /*
+         * File operations return as soon as changes are put into queues of listeners.
+         * Every listener has its own queue of at most capacity change batches and receives
+         * them in order. When queue is full, overflowPolicy decides what to do:
+         *   BLOCK - file operation waits for the free place in the queue
+         *   DROP_OLDEST - the oldest batch is dropped, it is reported as CHANGES event of Diagnostics
+         *   COALESCE - a new batch is merged into the last queued one
+         * Caches and watchers of file system itself are updated by operation before it returns.
+         */
+        public static ChangesDispatch async(int capacity, OverflowPolicy overflowPolicy) {
+            if ( capacity < 1 ) {
+                throw new IllegalArgumentException(format("Queue capacity %s is less than 1!", capacity));
+            }
+
+            return new ChangesDispatch(true, capacity, overflowPolicy);
+        }
+
+        public boolean isAsync() {
+            return this.async;
+        }
+
+        public int capacity() {
+            return this.capacity;
+        }
+
+        public OverflowPolicy overflowPolicy() {
+            return this.overflowPolicy;
+        }
+    }
+
+    public static class Transfer {
+
+        public static final long UNLIMITED = 0;
+
+        /*
+         * Files from 64 MiB are copied in chunks of 8 MiB without bandwidth limit.
+         */
+        public static final Transfer DEFAULT = new Transfer(64L * 1024 * 1024, 8 * 1024 * 1024, UNLIMITED);
+
+        private final long largeFileThreshold;
+        private final int chunkSize;
+        private final long bytesPerSecond;
+
+        private Transfer(long largeFileThreshold, int chunkSize, long bytesPerSecond) {
+            this.largeFileThreshold = largeFileThreshold;
+            this.chunkSize = chunkSize;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        /*
+         * Files not smaller than largeFileThreshold are copied by FileChannel.transferTo in chunks of
+         * chunkSize bytes with progress reported after every chunk. Copy goes to <name>.part file
+         * which is renamed to <name> at the end, if copy has been interrupted, next copy of the same
+         * file continues from the end of existing <name>.part file. Size and modification time of
+         * source are kept in <name>.part.source, part of changed source is not resumed.
+         */
+        public static Transfer chunked(long largeFileThreshold, int chunkSize) {
+            if ( largeFileThreshold < 0 ) {
+                throw new IllegalArgumentException(format("Large file threshold %s is negative!", largeFileThreshold));
+            }
+
+            if ( chunkSize < 1 ) {
+                throw new IllegalArgumentException(format("Chunk size %s is less than 1!", chunkSize));
+            }
+
+            return new Transfer(largeFileThreshold, chunkSize, UNLIMITED);
+        }
+
+        public Transfer limitedTo(long bytesPerSecond) {
+            if ( bytesPerSecond < 0 ) {
+                throw new IllegalArgumentException(format("Bandwidth %s is negative!", bytesPerSecond));
+            }
+
+            return new Transfer(this.largeFileThreshold, this.chunkSize, bytesPerSecond);
+        }
+
+        public long largeFileThreshold() {
+            return this.largeFileThreshold;
+        }
+
+        public int chunkSize() {
+            return this.chunkSize;
+        }
+
+        public long bytesPerSecond() {
+            return this.bytesPerSecond;
+        }
+
+        public boolean isBandwidthLimited() {
+            return this.bytesPerSecond != UNLIMITED;
+        }
+    }
+
+    public enum AttributesMode implements CommonEnum<AttributesMode> {
+        /* every attribute is read from the file system on every call */
+        LIVE,
+        /*
+         * entries returned by list and feed* methods carry attributes read once during listing,
+         * they are returned until FSEntry.refresh() is called, FSEntry.isStale() tells that
+         * they are older than attributesMaxAge
+         */
+        SNAPSHOT
+    }
+
+    public static final FileSystemSettings DEFAULT = new FileSystemSettings();
+
+    /*
+     * Every with* method returns a new instance, an instance itself is never changed
+     * after it has been returned.
+     */
+    private ChangesDispatch changesDispatch;
+    private int copyParallelism;
+    private Transfer transfer;
+    private int removeParallelism;
+    private int removedBatchSize;
+    private int batchParallelism;
+    private AttributesMode attributesMode;
+    private Duration attributesMaxAge;
+    private int entriesCacheSize;
+    private int realPathsCacheSize;
+    private int treeSizeParallelism;
+
+    private FileSystemSettings() {
+        this.changesDispatch = ChangesDispatch.AWAIT;
+        this.copyParallelism = Runtime.getRuntime().availableProcessors();
+        this.transfer = Transfer.DEFAULT;
+        this.removeParallelism = Runtime.getRuntime().availableProcessors();
+        this.removedBatchSize = 1000;
+        this.batchParallelism = 4;
+        this.attributesMode = AttributesMode.LIVE;
+        this.attributesMaxAge = Duration.ofSeconds(5);
+        this.entriesCacheSize = 0;
+        this.realPathsCacheSize = 0;
+        this.treeSizeParallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    private FileSystemSettings(FileSystemSettings other) {
+        this.changesDispatch = other.changesDispatch;
+        this.copyParallelism = other.copyParallelism;
+        this.transfer = other.transfer;
+        this.removeParallelism = other.removeParallelism;
+        this.removedBatchSize = other.removedBatchSize;
+        this.batchParallelism = other.batchParallelism;
+        this.attributesMode = other.attributesMode;
+        this.attributesMaxAge = other.attributesMaxAge;
+        this.entriesCacheSize = other.entriesCacheSize;
+        this.realPathsCacheSize = other.realPathsCacheSize;
+        this.treeSizeParallelism = other.treeSizeParallelism;
+    }
+
+    public ChangesDispatch changesDispatch() {
+        return this.changesDispatch;
+    }
+
+    /*
+     * Count of threads copying directory content in parallel.
+     */
+    public int copyParallelism() {
+        return this.copyParallelism;
+    }
+
+    public Transfer transfer() {
+        return this.transfer;
+    }
+
+    /*
+     * Count of threads removing directory content in parallel.
+     */
+    public int removeParallelism() {
+        return this.removeParallelism;
+    }
+
+    /*
+     * Max count of paths in one removal notification while directory tree is being removed.
+     */
+    public int removedBatchSize() {
+        return this.removedBatchSize;
+    }
+
+    /*
+     * Count of independent entries processed concurrently by copyAll, moveAll and removeAll.
+     */
+    public int batchParallelism() {
+        return this.batchParallelism;
+    }
+
+    public AttributesMode attributesMode() {
+        return this.attributesMode;
+    }
+
+    public Duration attributesMaxAge() {
+        return this.attributesMaxAge;
+    }
+
+    /*
+     * Max count of entries kept by real paths to be returned by toFSEntry, toDirectory, toFile
+     * and parentsOf without touching the disk, 0 means that entries are not cached.
+     */
+    public int entriesCacheSize() {
+        return this.entriesCacheSize;
+    }
+
+    /*
+     * Max count of path segments remembered while real paths are resolved, 0 means that every
+     * path is resolved by Path.toRealPath(). Names are remembered in the case they are given.
+     */
+    public int realPathsCacheSize() {
+        return this.realPathsCacheSize;
+    }
+
+    /*
+     * Count of threads walking directory tree in parallel while its size is computed.
+     */
+    public int treeSizeParallelism() {
+        return this.treeSizeParallelism;
+    }
+
+    public FileSystemSettings withChangesDispatch(ChangesDispatch changesDispatch) {
+        FileSystemSettings settings = new FileSystemSettings(this);
+        settings.changesDispatch = changesDispatch;
+        return settings;
+    }
+
+    public FileSystemSettings withCopyParallelism(int copyParallelism) {
+        FileSystemSettings settings = new FileSystemSettings(this);
+        settings.copyParallelism = positive("Copy parallelism", copyParallelism);
+        return settings;
+    }
+
+    public FileSystemSettings withTransfer(Transfer transfer) {
+        FileSystemSettings settings = new FileSystemSettings(this);
+        settings.transfer = transfer;
+        return settings;
+    }
+
+    public FileSystemSettings withRemoveParallelism(int removeParallelism) {
+        FileSystemSettings settings = new FileSystemSettings(this);
+        settings.removeParallelism = positive("Remove parallelism", removeParallelism);
+        return settings;
+    }
+
+    public FileSystemSettings withRemovedBatchSize(int removedBatchSize) {
+        FileSystemSettings settings = new FileSystemSettings(this);
+        settings.removedBatchSize = positive("Removed batch size", removedBatchSize);
+        return settings;
+    }
+
+    public FileSystemSettings withBatchParallelism(int batchParallelism) {
+        FileSystemSettings settings = new FileSystemSettings(this);
+        settings.batchParallelism = positive("Batch parallelism", batchParallelism);
+        return settings;
+    }
+
+    public FileSystemSettings withAttributesMode(AttributesMode attributesMode) {
+        FileSystemSettings settings = new FileSystemSettings(this);
+        settings.attributesMode = attributesMode;
+        return settings;
+    }
+
+    public FileSystemSettings withAttributesMaxAge(Duration attributesMaxAge) {
+        if ( attributesMaxAge.isNegative() ) {
+            throw new IllegalArgumentException(format("Attributes max age %s is negative!", attributesMaxAge));
+        }
+
+        FileSystemSettings settings = new FileSystemSettings(this);
+        settings.attributesMaxAge = attributesMaxAge;
+        return settings;
+    }
+
+    public FileSystemSettings withEntriesCacheSize(int entriesCacheSize) {
+        if ( entriesCacheSize < 0 ) {
+            throw new IllegalArgumentException(format("Entries cache size %s is negative!", entriesCacheSize));
+        }
+
+        FileSystemSettings settings = new FileSystemSettings(this);
+        settings.entriesCacheSize = entriesCacheSize;
+        return settings;
+    }
+
+    public FileSystemSettings withRealPathsCacheSize(int realPathsCacheSize) {
+        if ( realPathsCacheSize < 0 ) {
+            throw new IllegalArgumentException(format("Real paths cache size %s is negative!", realPathsCacheSize));
+        }
+
+        FileSystemSettings settings = new FileSystemSettings(this);
+        settings.realPathsCacheSize = realPathsCacheSize;
+        return settings;
+    }
+
+    public FileSystemSettings withTreeSizeParallelism(int treeSizeParallelism) {
+        FileSystemSettings settings = new FileSystemSettings(this);
+        settings.treeSizeParallelism = positive("Tree size parallelism", treeSizeParallelism);
+        return settings;
+    }
+
+    private static int positive(String name, int value) {
+        if ( value < 1 ) {
+            throw new IllegalArgumentException(format("%s %s is less than 1!", name, value));
+        }
+
+        return value;
+    }
+}
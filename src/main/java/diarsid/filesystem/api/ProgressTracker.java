@@ -1,5 +1,6 @@
 package diarsid.filesystem.api;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -11,6 +12,10 @@ public class ProgressTracker<T> extends ProgressTrackerBack<T> {
         void accept(long progressIndex, T item);
     }
 
+    public interface BytesConsumer<T> {
+        void accept(T item, Path file, long fileBytesDone, long fileBytesAll);
+    }
+
     public ProgressTracker(
             Consumer<List<T>> onStart,
             Consumer<T> onItemStart,
@@ -18,4 +23,13 @@ public class ProgressTracker<T> extends ProgressTrackerBack<T> {
             Runnable onStop) {
         super(onStart, onItemStart, onItemDone, onStop);
     }
+
+    public ProgressTracker(
+            Consumer<List<T>> onStart,
+            Consumer<T> onItemStart,
+            ProgressConsumer<T> onItemDone,
+            BytesConsumer<T> onItemBytes,
+            Runnable onStop) {
+        super(onStart, onItemStart, onItemDone, onItemBytes, onStop);
+    }
 }
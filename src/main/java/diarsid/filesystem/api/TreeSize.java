@@ -0,0 +1,61 @@
+package diarsid.filesystem.api;
+
+/*
+ * Total size of a directory tree. Files are counted by their own sizes, symbolic links are counted
+ * as files and are not followed. Directories count does not include the root of the tree.
+ */
+public class TreeSize {
+
+    public static final TreeSize EMPTY = new TreeSize(0, 0, 0, 0);
+
+    private final long bytes;
+    private final long files;
+    private final long directories;
+    private final long unreadableDirectories;
+
+    public TreeSize(long bytes, long files, long directories, long unreadableDirectories) {
+        this.bytes = bytes;
+        this.files = files;
+        this.directories = directories;
+        this.unreadableDirectories = unreadableDirectories;
+    }
+
+    public long bytes() {
+        return this.bytes;
+    }
+
+    public long files() {
+        return this.files;
+    }
+
+    public long directories() {
+        return this.directories;
+    }
+
+    /* directories that could not be listed, their content is not counted */
+    public long unreadableDirectories() {
+        return this.unreadableDirectories;
+    }
+
+    public boolean isComplete() {
+        return this.unreadableDirectories == 0;
+    }
+
+    public TreeSize plus(TreeSize other) {
+        return new TreeSize(
+                this.bytes + other.bytes,
+                this.files + other.files,
+                this.directories + other.directories,
+                this.unreadableDirectories + other.unreadableDirectories);
+    }
+
+    @Override
+    public String toString() {
+        return "TreeSize{" +
+                "bytes=" + bytes +
+                ", files=" + files +
+                ", directories=" + directories +
+                ", unreadableDirectories=" + unreadableDirectories +
+                '}';
+    }
+}
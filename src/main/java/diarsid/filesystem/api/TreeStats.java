@@ -0,0 +1,118 @@
+package diarsid.filesystem.api;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import diarsid.files.Extension;
+import diarsid.files.SizeInBytes;
+
+import static java.util.Collections.unmodifiableMap;
+
+/*
+ * Counts and sizes of files of a directory tree grouped by their extensions or by anything that
+ * is derived from extension. Files without extension are not grouped and are counted separately.
+ * Files are counted the same way as in TreeSize, ignored entries are not counted.
+ */
+public class TreeStats<K> {
+
+    public static class Totals {
+
+        public static final Totals EMPTY = new Totals(0, 0);
+
+        private final long files;
+        private final long bytes;
+
+        public Totals(long files, long bytes) {
+            this.files = files;
+            this.bytes = bytes;
+        }
+
+        public long files() {
+            return this.files;
+        }
+
+        public long bytes() {
+            return this.bytes;
+        }
+
+        public Totals plus(Totals other) {
+            return new Totals(this.files + other.files, this.bytes + other.bytes);
+        }
+
+        @Override
+        public String toString() {
+            return "Totals{" +
+                    "files=" + files +
+                    ", size=" + SizeInBytes.of(bytes).format(bytes) +
+                    '}';
+        }
+    }
+
+    public static class GroupBy<K> {
+
+        public static final GroupBy<Extension> EXTENSION = new GroupBy<>(extension -> extension);
+        public static final GroupBy<Extension.Category> CATEGORY = new GroupBy<>(Extension::category);
+
+        private final Function<Extension, K> keyByExtension;
+
+        private GroupBy(Function<Extension, K> keyByExtension) {
+            this.keyByExtension = keyByExtension;
+        }
+
+        public static <K> GroupBy<K> of(Function<Extension, K> keyByExtension) {
+            return new GroupBy<>(keyByExtension);
+        }
+
+        public K keyOf(Extension extension) {
+            return this.keyByExtension.apply(extension);
+        }
+    }
+
+    private final Map<K, Totals> groups;
+    private final Totals withoutExtension;
+    private final long unreadableDirectories;
+
+    public TreeStats(Map<K, Totals> groups, Totals withoutExtension, long unreadableDirectories) {
+        this.groups = unmodifiableMap(groups);
+        this.withoutExtension = withoutExtension;
+        this.unreadableDirectories = unreadableDirectories;
+    }
+
+    public Map<K, Totals> groups() {
+        return this.groups;
+    }
+
+    public Totals of(K key) {
+        return this.groups.getOrDefault(key, Totals.EMPTY);
+    }
+
+    public Totals withoutExtension() {
+        return this.withoutExtension;
+    }
+
+    public Totals total() {
+        Totals total = this.withoutExtension;
+        for ( Totals totals : this.groups.values() ) {
+            total = total.plus(totals);
+        }
+        return total;
+    }
+
+    /* directories that could not be listed, their content is not counted */
+    public long unreadableDirectories() {
+        return this.unreadableDirectories;
+    }
+
+    public boolean isComplete() {
+        return this.unreadableDirectories == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "TreeStats{" +
+                "groups=" + groups +
+                ", withoutExtension=" + withoutExtension +
+                ", unreadableDirectories=" + unreadableDirectories +
+                '}';
+    }
+}
@@ -0,0 +1,307 @@
+package diarsid.filesystem.api.ignoring;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/*
+ * Compiled gitignore-style patterns:
+ *   - blank lines and lines starting with '#' are skipped;
+ *   - trailing '/' makes pattern match only directories;
+ *   - pattern without '/' (or starting with '**' + '/' and having no more '/') matches name at any depth;
+ *   - pattern with '/' is anchored to the base directory, leading '/' is optional;
+ *   - '*', '?', '[...]', '{...}' and '**' have PathMatcher glob meaning, except that '**' + '/'
+ *     matches zero or more directories, so that 'a/' + '**' + '/b' matches 'a/b' too.
+ * Negation by '!' is not supported.
+ * Names are matched ignoring case, as predefined ignored names are, while anchored paths are
+ * matched as the file system compares paths.
+ * Literal names and literal paths are looked up in hash sets, only patterns with wildcards are
+ * evaluated by PathMatchers. When there are such patterns, results are cached per directory, so
+ * that filtering of a repeatedly listed directory costs one hash lookup per entry. Cache is
+ * cleared as a whole when it holds too many results. Type of entry is asked only when its name or
+ * path is matched by a pattern for directories.
+ */
+public class IgnorePatterns {
+
+    private enum Match {
+        NONE,
+        ANY,
+        /* ignored only if it is a directory */
+        DIRECTORY
+    }
+
+    private static final int MAX_CACHED_MATCHES = 64 * 1024;
+
+    public static final IgnorePatterns NONE = new IgnorePatterns(null, List.of(), null);
+
+    private final Path base;
+    private final List<String> patterns;
+    private final Set<String> names;
+    private final Set<String> directoryNames;
+    private final Set<Path> paths;
+    private final Set<Path> directoryPaths;
+    private final List<PathMatcher> nameMatchers;
+    private final List<PathMatcher> directoryNameMatchers;
+    private final List<PathMatcher> pathMatchers;
+    private final List<PathMatcher> directoryPathMatchers;
+    private final boolean hasMatchers;
+    private final Map<Path, Map<Path, Match>> matchesByDirectories;
+    private final AtomicInteger cachedMatches;
+
+    private IgnorePatterns(Path base, List<String> patterns, FileSystem fileSystem) {
+        this.base = base;
+        this.patterns = unmodifiableList(patterns);
+        this.names = new HashSet<>();
+        this.directoryNames = new HashSet<>();
+        this.paths = new HashSet<>();
+        this.directoryPaths = new HashSet<>();
+        this.nameMatchers = new ArrayList<>();
+        this.directoryNameMatchers = new ArrayList<>();
+        this.pathMatchers = new ArrayList<>();
+        this.directoryPathMatchers = new ArrayList<>();
+        this.matchesByDirectories = new ConcurrentHashMap<>();
+        this.cachedMatches = new AtomicInteger(0);
+
+        for ( String pattern : patterns ) {
+            this.add(pattern, fileSystem);
+        }
+
+        this.hasMatchers =
+                ! this.nameMatchers.isEmpty() ||
+                ! this.directoryNameMatchers.isEmpty() ||
+                ! this.pathMatchers.isEmpty() ||
+                ! this.directoryPathMatchers.isEmpty();
+    }
+
+    /* base is a directory to which patterns containing '/' are anchored */
+    public static IgnorePatterns compile(Path base, Collection<String> lines) {
+        Path absoluteBase = base.toAbsolutePath();
+        List<String> patterns = new ArrayList<>();
+
+        String pattern;
+        for ( String line : lines ) {
+            pattern = line.strip();
+            if ( pattern.isEmpty() || pattern.startsWith("#") ) {
+                continue;
+            }
+            patterns.add(pattern);
+        }
+
+        return new IgnorePatterns(absoluteBase, patterns, absoluteBase.getFileSystem());
+    }
+
+    private void add(String pattern, FileSystem fileSystem) {
+        boolean onlyDirectories = pattern.endsWith("/");
+        if ( onlyDirectories ) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+
+        if ( pattern.startsWith("**/") && pattern.indexOf('/', 3) < 0 ) {
+            pattern = pattern.substring(3);
+        }
+
+        boolean anchored = pattern.indexOf('/') > -1;
+        if ( pattern.startsWith("/") ) {
+            pattern = pattern.substring(1);
+        }
+
+        if ( pattern.isEmpty() ) {
+            return;
+        }
+
+        if ( anchored ) {
+            for ( String variant : withCollapsedDirectories(pattern) ) {
+                this.addAnchored(variant, onlyDirectories, fileSystem);
+            }
+        }
+        else {
+            boolean literal = isLiteral(pattern);
+            pattern = pattern.toLowerCase(Locale.ROOT);
+            if ( literal ) {
+                (onlyDirectories ? this.directoryNames : this.names).add(pattern);
+            }
+            else {
+                PathMatcher matcher = fileSystem.getPathMatcher("glob:" + pattern);
+                (onlyDirectories ? this.directoryNameMatchers : this.nameMatchers).add(matcher);
+            }
+        }
+    }
+
+    private void addAnchored(String pattern, boolean onlyDirectories, FileSystem fileSystem) {
+        if ( isLiteral(pattern) ) {
+            Path path = this.base.getFileSystem().getPath(pattern);
+            (onlyDirectories ? this.directoryPaths : this.paths).add(path);
+        }
+        else {
+            PathMatcher matcher = fileSystem.getPathMatcher("glob:" + pattern);
+            (onlyDirectories ? this.directoryPathMatchers : this.pathMatchers).add(matcher);
+        }
+    }
+
+    /*
+     * Glob '**' + '/' needs at least one directory while in gitignore it means zero or more, so
+     * pattern is expanded into variants where every such part is either kept or dropped.
+     */
+    private static List<String> withCollapsedDirectories(String pattern) {
+        List<String> variants = new ArrayList<>();
+
+        if ( pattern.startsWith("**/") ) {
+            for ( String rest : withCollapsedDirectories(pattern.substring(3)) ) {
+                variants.add("**/" + rest);
+                variants.add(rest);
+            }
+            return variants;
+        }
+
+        int i = pattern.indexOf("/**/");
+        if ( i < 0 ) {
+            variants.add(pattern);
+            return variants;
+        }
+
+        String head = pattern.substring(0, i);
+        for ( String rest : withCollapsedDirectories(pattern.substring(i + 4)) ) {
+            variants.add(head + "/**/" + rest);
+            variants.add(head + "/" + rest);
+        }
+        return variants;
+    }
+
+    private static boolean isLiteral(String pattern) {
+        char c;
+        for ( int i = 0; i < pattern.length(); i++ ) {
+            c = pattern.charAt(i);
+            if ( c == '*' || c == '?' || c == '[' || c == '{' || c == '\\' ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<String> patterns() {
+        return this.patterns;
+    }
+
+    public boolean isEmpty() {
+        return this.patterns.isEmpty();
+    }
+
+    public boolean isIgnored(Path path, boolean isDirectory) {
+        return this.isIgnored(path, () -> isDirectory);
+    }
+
+    public boolean isIgnored(Path path) {
+        return this.isIgnored(path, () -> Files.isDirectory(path));
+    }
+
+    boolean isIgnored(Path path, BooleanSupplier isDirectory) {
+        if ( this.patterns.isEmpty() ) {
+            return false;
+        }
+
+        Path name = path.getFileName();
+        if ( isNull(name) ) {
+            return false;
+        }
+
+        Match match;
+        Path parent = path.getParent();
+        if ( this.hasMatchers && nonNull(parent) ) {
+            Map<Path, Match> matches = this.matchesByDirectories.computeIfAbsent(
+                    parent, newParent -> new ConcurrentHashMap<>());
+
+            match = matches.get(name);
+            if ( isNull(match) ) {
+                match = this.match(path, name);
+                if ( this.cachedMatches.incrementAndGet() > MAX_CACHED_MATCHES ) {
+                    this.matchesByDirectories.clear();
+                    this.cachedMatches.set(0);
+                }
+                matches.put(name, match);
+            }
+        }
+        else {
+            match = this.match(path, name);
+        }
+
+        switch ( match ) {
+            case ANY:
+                return true;
+            case DIRECTORY:
+                return isDirectory.getAsBoolean();
+            default:
+                return false;
+        }
+    }
+
+    private Match match(Path path, Path name) {
+        String nameString = name.toString().toLowerCase(Locale.ROOT);
+        if ( ! this.nameMatchers.isEmpty() || ! this.directoryNameMatchers.isEmpty() ) {
+            name = name.getFileSystem().getPath(nameString);
+        }
+
+        if ( this.names.contains(nameString) ) {
+            return Match.ANY;
+        }
+
+        for ( PathMatcher matcher : this.nameMatchers ) {
+            if ( matcher.matches(name) ) {
+                return Match.ANY;
+            }
+        }
+
+        Path relative = null;
+        if ( path.isAbsolute() && path.startsWith(this.base) ) {
+            relative = this.base.relativize(path);
+
+            if ( this.paths.contains(relative) ) {
+                return Match.ANY;
+            }
+
+            for ( PathMatcher matcher : this.pathMatchers ) {
+                if ( matcher.matches(relative) ) {
+                    return Match.ANY;
+                }
+            }
+        }
+
+        if ( this.directoryNames.contains(nameString) ) {
+            return Match.DIRECTORY;
+        }
+
+        for ( PathMatcher matcher : this.directoryNameMatchers ) {
+            if ( matcher.matches(name) ) {
+                return Match.DIRECTORY;
+            }
+        }
+
+        if ( nonNull(relative) ) {
+            if ( this.directoryPaths.contains(relative) ) {
+                return Match.DIRECTORY;
+            }
+
+            for ( PathMatcher matcher : this.directoryPathMatchers ) {
+                if ( matcher.matches(relative) ) {
+                    return Match.DIRECTORY;
+                }
+            }
+        }
+
+        return Match.NONE;
+    }
+}
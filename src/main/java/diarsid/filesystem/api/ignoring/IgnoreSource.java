@@ -0,0 +1,124 @@
+package diarsid.filesystem.api.ignoring;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+ * File with predefined ignores, one ignore per line. Blank lines and lines starting with '#' are
+ * skipped. File may be absent when sources are set - it is the same as empty file, it is read when
+ * it appears. File that disappears later keeps its last read content in use.
+ */
+public class IgnoreSource {
+
+    public enum Kind {
+        /* names of entries ignored at any depth */
+        NAMES,
+        /* paths of ignored entries with their subtrees */
+        PATHS,
+        /* gitignore-style patterns anchored to the directory of the file, see IgnorePatterns */
+        PATTERNS
+    }
+
+    /* directory with default sources, relative to working directory if not specified */
+    public static final String DIRECTORY_PROPERTY = "diarsid.filesystem.ignores";
+    public static final String DEFAULT_DIRECTORY = "home/ignores";
+
+    public static final String NAMES_FILE = "by_names";
+    public static final String PATHS_FILE = "by_paths";
+    public static final String PATTERNS_FILE = "patterns";
+
+    private final Kind kind;
+    private final Path file;
+
+    private IgnoreSource(Kind kind, Path file) {
+        if ( Files.isDirectory(file) ) {
+            throw new IllegalArgumentException(format("Ignore source '%s' is a directory!", file));
+        }
+
+        this.kind = kind;
+        this.file = file.toAbsolutePath();
+    }
+
+    public static IgnoreSource names(Path file) {
+        return new IgnoreSource(Kind.NAMES, file);
+    }
+
+    public static IgnoreSource paths(Path file) {
+        return new IgnoreSource(Kind.PATHS, file);
+    }
+
+    public static IgnoreSource patterns(Path file) {
+        return new IgnoreSource(Kind.PATTERNS, file);
+    }
+
+    /* by_names, by_paths and patterns files of the directory */
+    public static List<IgnoreSource> inDirectory(Path directory) {
+        if ( Files.exists(directory) && ! Files.isDirectory(directory) ) {
+            throw new IllegalArgumentException(format("Ignore sources directory '%s' is not a directory!", directory));
+        }
+
+        return List.of(
+                names(directory.resolve(NAMES_FILE)),
+                paths(directory.resolve(PATHS_FILE)),
+                patterns(directory.resolve(PATTERNS_FILE)));
+    }
+
+    static List<IgnoreSource> defaults() {
+        return inDirectory(Path.of(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY)));
+    }
+
+    public Kind kind() {
+        return this.kind;
+    }
+
+    public Path file() {
+        return this.file;
+    }
+
+    List<String> readLines() throws IOException {
+        List<String> lines = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(this.file, UTF_8)) {
+            String line;
+            while ( (line = reader.readLine()) != null ) {
+                line = line.strip();
+                if ( line.isEmpty() || line.startsWith("#") ) {
+                    continue;
+                }
+                lines.add(line);
+            }
+        }
+
+        return lines;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IgnoreSource)) return false;
+        IgnoreSource that = (IgnoreSource) o;
+        return kind == that.kind &&
+                file.equals(that.file);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, file);
+    }
+
+    @Override
+    public String toString() {
+        return "IgnoreSource{" +
+                "kind=" + kind +
+                ", file=" + file +
+                '}';
+    }
+}
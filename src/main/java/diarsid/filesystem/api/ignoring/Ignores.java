@@ -1,10 +1,13 @@
 package diarsid.filesystem.api.ignoring;
 
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import diarsid.filesystem.api.FSEntry;
+import diarsid.support.callbacks.ValueCallback;
+import diarsid.support.callbacks.groups.ActiveCallback;
 import diarsid.support.objects.groups.async.AsyncConsumers;
 
 public interface Ignores {
@@ -18,8 +21,29 @@ public interface Ignores {
 
     boolean isIgnored(FSEntry fsEntry);
 
+    /* the same as isIgnored(FSEntry) but does not need an entry to be created */
+    boolean isIgnored(Path path);
+
+    /* for walks that already know type of entry, nothing is read from disk */
+    default boolean isIgnored(Path path, boolean isDirectory) {
+        return this.isIgnored(path);
+    }
+
     Optional<Ignore> findFor(FSEntry fsEntry);
 
+    IgnorePatterns patterns();
+
+    /* replaces currently used patterns at once */
+    void usePatterns(IgnorePatterns patterns);
+
+    List<IgnoreSource> sources();
+
+    /*
+     * Replaces sources of predefined ignores at once. Sources are watched, changed source is
+     * read again and takes effect without restart. Empty list stops watching.
+     */
+    void useSources(List<IgnoreSource> sources);
+
     Collection<Ignore> all();
 
     List<Ignore> allBy(Sort sort);
@@ -28,6 +52,12 @@ public interface Ignores {
 
     boolean undo(Ignore ignore);
 
+    /*
+     * Callback is called after ignoring has changed: by ignore() and undo() with path of entry,
+     * by change of patterns or sources with empty list - ignoring of any path could have changed.
+     */
+    ActiveCallback<ValueCallback<List<Path>>> listenForChanges(ValueCallback<List<Path>> callback);
+
     AsyncConsumers<Ignore> onIgnore();
 
     AsyncConsumers<Ignore> onIgnoreUndo();
@@ -35,4 +65,8 @@ public interface Ignores {
     default boolean isNotIgnored(FSEntry fsEntry) {
         return ! this.isIgnored(fsEntry);
     }
+
+    default boolean isNotIgnored(Path path) {
+        return ! this.isIgnored(path);
+    }
 }
@@ -2,105 +2,402 @@ package diarsid.filesystem.api.ignoring;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
+import diarsid.files.LocalDirectoryWatcher.Coalescing;
+import diarsid.files.LocalFileWatcher;
 import diarsid.filesystem.api.FSEntry;
+import diarsid.support.callbacks.ValueCallback;
+import diarsid.support.callbacks.groups.ActiveCallback;
+import diarsid.support.callbacks.groups.AsyncValueCallbacks;
 import diarsid.support.objects.groups.async.AsyncConsumers;
 
+import static java.lang.String.format;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableSet;
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
+import static diarsid.files.LocalDirectoryWatcher.CallbackSynchronization.PER_WATCHER;
+import static diarsid.filesystem.api.Diagnostics.Category.IO;
+import static diarsid.filesystem.api.Diagnostics.event;
+import static diarsid.filesystem.api.Diagnostics.failure;
+
+/*
+ * Readers always work with one immutable Snapshot taken by a single volatile read, so that
+ * isIgnored never waits and never sees half-done changes. Every change builds a new Snapshot
+ * and swaps it in, changes themselves are serialized.
+ * Ignored directory hides its whole subtree: ignored paths, both predefined and ignored entries,
+ * are kept in a trie which tells whether a path or any its ancestor is ignored by one descent,
+ * names and patterns are checked for the path and for each its ancestor.
+ * Predefined ignores are read from sources, watched sources are read again on change and new
+ * Snapshot is swapped in, so that all readers see either old or new content of a source.
+ * Listeners of changes are called in the thread that has made the change, after the new Snapshot
+ * is swapped in.
+ */
 class IgnoresHolder implements Ignores {
 
-    private final Map<FSEntry, Ignore> ignores;
-    private final Map<Ignore, FSEntry> ignoredFSEntries;
+    private static final Coalescing COALESCING = Coalescing.of(Duration.ofMillis(50));
+    private static final BooleanSupplier ANCESTOR = () -> true;
+    private static final List<Path> ANY_PATH = List.of();
+
+    private static class Predefined {
+
+        private final Set<String> names;
+        private final Set<Path> paths;
+        private final List<IgnorePatterns> patterns;
+
+        private Predefined(Map<IgnoreSource, List<String>> linesBySources) {
+            Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            Set<Path> paths = new HashSet<>();
+            List<IgnorePatterns> patterns = new ArrayList<>();
+
+            linesBySources.forEach((source, lines) -> {
+                switch ( source.kind() ) {
+                    case NAMES:
+                        names.addAll(lines);
+                        break;
+                    case PATHS:
+                        for ( String line : lines ) {
+                            paths.add(Path.of(line));
+                        }
+                        break;
+                    case PATTERNS:
+                        if ( ! lines.isEmpty() ) {
+                            patterns.add(IgnorePatterns.compile(source.file().getParent(), lines));
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown source kind: " + source.kind());
+                }
+            });
+
+            this.names = unmodifiableSet(names);
+            this.paths = unmodifiableSet(paths);
+            this.patterns = unmodifiableList(patterns);
+        }
+    }
+
+    private static class Snapshot {
+
+        private final Map<FSEntry, Ignore> ignores;
+        private final PathTrie<Path> ignoredSubtrees;
+        private final Predefined predefined;
+        private final IgnorePatterns patterns;
+        private final boolean hasNamesOrPatterns;
+
+        private Snapshot(
+                Map<FSEntry, Ignore> ignores,
+                Predefined predefined,
+                IgnorePatterns patterns) {
+            this.ignores = Collections.unmodifiableMap(ignores);
+            this.ignoredSubtrees = new PathTrie<>();
+            this.predefined = predefined;
+            this.patterns = patterns;
+            this.hasNamesOrPatterns =
+                    ! predefined.names.isEmpty() ||
+                    ! predefined.patterns.isEmpty() ||
+                    ! patterns.isEmpty();
+
+            for ( Path path : this.predefined.paths ) {
+                this.ignoredSubtrees.put(path, path);
+            }
+
+            for ( FSEntry fsEntry : this.ignores.keySet() ) {
+                this.ignoredSubtrees.put(fsEntry.path(), fsEntry.path());
+            }
+        }
+
+        private Snapshot with(Map<FSEntry, Ignore> ignores) {
+            return new Snapshot(ignores, this.predefined, this.patterns);
+        }
+
+        private Snapshot with(IgnorePatterns patterns) {
+            return new Snapshot(this.ignores, this.predefined, patterns);
+        }
+
+        private Snapshot with(Predefined predefined) {
+            return new Snapshot(this.ignores, predefined, this.patterns);
+        }
+
+        /*
+         * Ancestors are directories: ancestor ignored by name or by pattern hides the whole its
+         * subtree, as ignored subtrees do. Type of the path itself is read only if the path is
+         * matched by some pattern for directories.
+         */
+        private boolean isIgnored(Path path, BooleanSupplier isDirectory) {
+            if ( nonNull(this.ignoredSubtrees.getOfSelfOrAncestor(path)) ) {
+                return true;
+            }
+
+            if ( ! this.hasNamesOrPatterns ) {
+                return false;
+            }
+
+            if ( this.isIgnoredByName(path) || this.isIgnoredByPatterns(path, isDirectory) ) {
+                return true;
+            }
+
+            for ( Path ancestor = path.getParent(); nonNull(ancestor); ancestor = ancestor.getParent() ) {
+                if ( this.isIgnoredByName(ancestor) || this.isIgnoredByPatterns(ancestor, ANCESTOR) ) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private boolean isIgnoredByName(Path path) {
+            Path name = path.getFileName();
+            return nonNull(name) && this.predefined.names.contains(name.toString());
+        }
+
+        private boolean isIgnoredByPatterns(Path path, BooleanSupplier isDirectory) {
+            if ( this.patterns.isIgnored(path, isDirectory) ) {
+                return true;
+            }
+
+            for ( IgnorePatterns patterns : this.predefined.patterns ) {
+                if ( patterns.isIgnored(path, isDirectory) ) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    private final AtomicReference<Snapshot> snapshot;
+    private final Object changes;
+    private final Map<IgnoreSource, List<String>> linesBySources;
+    private final List<LocalFileWatcher> sourceWatchers;
     private final AsyncConsumers<Ignore> onIgnore;
     private final AsyncConsumers<Ignore> onIgnoreUndo;
-    private final Set<String> predefinedIgnoredNames;
-    private final Set<Path> predefinedIgnoredPaths;
+    private final AsyncValueCallbacks<List<Path>> onChange;
 
     IgnoresHolder() {
-        this.ignores = new HashMap<>();
-        this.ignoredFSEntries = new HashMap<>();
+        this(IgnoreSource.defaults());
+    }
+
+    /* given sources are read once and are not watched */
+    IgnoresHolder(List<IgnoreSource> sources) {
+        this.changes = new Object();
+        this.linesBySources = new LinkedHashMap<>();
+        this.sourceWatchers = new ArrayList<>();
         this.onIgnore = new AsyncConsumers<>();
         this.onIgnoreUndo = new AsyncConsumers<>();
-        this.predefinedIgnoredNames = new HashSet<>();
-        this.predefinedIgnoredPaths = new HashSet<>();
+        this.onChange = new AsyncValueCallbacks<>(Runnable::run);
 
-        try {
-            Files.lines(Paths.get("home/ignores/by_names"))
-                    .map(String::toLowerCase)
-                    .forEach(this.predefinedIgnoredNames::add);
+        for ( IgnoreSource source : sources ) {
+            this.linesBySources.put(source, read(source));
+        }
 
+        this.snapshot = new AtomicReference<>(new Snapshot(
+                new LinkedHashMap<>(),
+                new Predefined(this.linesBySources),
+                IgnorePatterns.NONE));
+    }
 
-            Files.lines(Paths.get("home/ignores/by_paths"))
-                    .map(Paths::get)
-                    .forEach(this.predefinedIgnoredPaths::add);
+    /* source that does not exist yet is empty, unlike source that has disappeared on reload */
+    private static List<String> read(IgnoreSource source) {
+        try {
+            return source.readLines();
+        }
+        catch (NoSuchFileException e) {
+            return List.of();
         }
         catch (IOException e) {
-            e.printStackTrace();
+            failure(IO, e);
+            return List.of();
         }
     }
 
     @Override
     public boolean isIgnored(FSEntry fsEntry) {
-        if ( this.predefinedIgnoredNames.contains(fsEntry.name().toLowerCase()) ) {
-            return true;
+        return this.snapshot.get().isIgnored(fsEntry.path(), fsEntry::isDirectory);
+    }
+
+    @Override
+    public boolean isIgnored(Path path) {
+        return this.snapshot.get().isIgnored(path, () -> Files.isDirectory(path));
+    }
+
+    @Override
+    public boolean isIgnored(Path path, boolean isDirectory) {
+        return this.snapshot.get().isIgnored(path, () -> isDirectory);
+    }
+
+    @Override
+    public IgnorePatterns patterns() {
+        return this.snapshot.get().patterns;
+    }
+
+    @Override
+    public void usePatterns(IgnorePatterns patterns) {
+        synchronized ( this.changes ) {
+            this.snapshot.set(this.snapshot.get().with(patterns));
+        }
+
+        this.onChange.callAndAwait(ANY_PATH);
+    }
+
+    @Override
+    public List<IgnoreSource> sources() {
+        synchronized ( this.changes ) {
+            return new ArrayList<>(this.linesBySources.keySet());
+        }
+    }
+
+    @Override
+    public void useSources(List<IgnoreSource> sources) {
+        for ( IgnoreSource source : sources ) {
+            if ( ! Files.isDirectory(source.file().getParent()) ) {
+                throw new IllegalArgumentException(format(
+                        "Cannot watch ignore source '%s' - its directory does not exist!", source.file()));
+            }
+        }
+
+        List<LocalFileWatcher> oldWatchers;
+        synchronized ( this.changes ) {
+            oldWatchers = new ArrayList<>(this.sourceWatchers);
+            this.sourceWatchers.clear();
+            this.linesBySources.clear();
+
+            for ( IgnoreSource source : sources ) {
+                this.linesBySources.put(source, read(source));
+            }
+
+            this.snapshot.set(this.snapshot.get().with(new Predefined(this.linesBySources)));
+
+            LocalFileWatcher watcher;
+            for ( IgnoreSource source : sources ) {
+                watcher = new LocalFileWatcher(
+                        source.file(),
+                        (kind, path) -> this.reload(source),
+                        PER_WATCHER,
+                        COALESCING);
+                watcher.startWork();
+                this.sourceWatchers.add(watcher);
+            }
         }
 
-        if ( this.predefinedIgnoredPaths.contains(fsEntry.path()) ) {
-            return true;
+        /* outside of lock - old watcher may wait in reload() for it */
+        for ( LocalFileWatcher watcher : oldWatchers ) {
+            watcher.destroy();
         }
 
-        return this.ignores.containsKey(fsEntry);
+        this.onChange.callAndAwait(ANY_PATH);
+    }
+
+    private void reload(IgnoreSource source) {
+        List<String> lines;
+        try {
+            lines = source.readLines();
+        }
+        catch (IOException e) {
+            /* last successfully read content stays in use, even if file is missing while it is replaced */
+            failure(IO, e);
+            return;
+        }
+
+        synchronized ( this.changes ) {
+            if ( ! this.linesBySources.containsKey(source) ) {
+                return;
+            }
+
+            this.linesBySources.put(source, lines);
+            this.snapshot.set(this.snapshot.get().with(new Predefined(this.linesBySources)));
+        }
+
+        event(IO, () -> "[ignores] reloaded " + source);
+        this.onChange.callAndAwait(ANY_PATH);
     }
 
     @Override
     public Optional<Ignore> findFor(FSEntry fsEntry) {
-        return Optional.ofNullable(this.ignores.get(fsEntry));
+        return Optional.ofNullable(this.snapshot.get().ignores.get(fsEntry));
     }
 
     @Override
     public Collection<Ignore> all() {
-        return this.ignores.values();
+        return this.snapshot.get().ignores.values();
     }
 
     @Override
     public List<Ignore> allBy(Sort sort) {
-        return null;
+        List<Ignore> ignores = new ArrayList<>(this.snapshot.get().ignores.values());
+
+        switch ( sort ) {
+            case BY_TIME:
+                ignores.sort(Comparator.comparing(Ignore::time));
+                break;
+            case BY_PATH:
+                ignores.sort(Comparator.comparing(ignore -> ignore.fsEntry().path()));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown sort: " + sort);
+        }
+
+        return ignores;
     }
 
     @Override
     public Ignore ignore(FSEntry fsEntry) {
         Ignore ignore = new Ignore(fsEntry);
-        this.ignores.put(fsEntry, ignore);
-        this.ignoredFSEntries.put(ignore, fsEntry);
+
+        synchronized ( this.changes ) {
+            Snapshot snapshot = this.snapshot.get();
+            Map<FSEntry, Ignore> ignores = new LinkedHashMap<>(snapshot.ignores);
+            ignores.put(fsEntry, ignore);
+            this.snapshot.set(snapshot.with(ignores));
+        }
+
+        this.onChange.callAndAwait(List.of(fsEntry.path()));
         this.onIgnore.accept(ignore);
         return ignore;
     }
 
     @Override
     public boolean undo(Ignore ignore) {
-        FSEntry ignoredEntry = this.ignoredFSEntries.remove(ignore);
+        synchronized ( this.changes ) {
+            Snapshot snapshot = this.snapshot.get();
+            Ignore actual = snapshot.ignores.get(ignore.fsEntry());
 
-        if ( isNull(ignoredEntry) ) {
-            return false;
-        }
+            if ( isNull(actual) || ! actual.equals(ignore) ) {
+                return false;
+            }
 
-        this.ignores.remove(ignoredEntry);
+            Map<FSEntry, Ignore> ignores = new LinkedHashMap<>(snapshot.ignores);
+            ignores.remove(ignore.fsEntry());
+            this.snapshot.set(snapshot.with(ignores));
+        }
 
+        this.onChange.callAndAwait(List.of(ignore.fsEntry().path()));
         this.onIgnoreUndo.accept(ignore);
 
         return true;
     }
 
+    @Override
+    public ActiveCallback<ValueCallback<List<Path>>> listenForChanges(ValueCallback<List<Path>> callback) {
+        return this.onChange.add(callback);
+    }
+
     @Override
     public AsyncConsumers<Ignore> onIgnore() {
         return this.onIgnore;
@@ -0,0 +1,83 @@
+package diarsid.filesystem.api.ignoring;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/*
+ * Values by paths kept in a trie of path segments, path root is the first segment. Trie is filled
+ * before it is published and is never changed after, so it can be read by any count of threads.
+ * Value of a path or of any its ancestor is found by one descent over path segments, so that
+ * the cost does not depend on how many paths are in trie.
+ */
+class PathTrie<V> {
+
+    private static class Node<V> {
+
+        private final Map<Path, Node<V>> children;
+        private V value;
+
+        private Node() {
+            this.children = new HashMap<>();
+        }
+    }
+
+    private final Node<V> root;
+
+    PathTrie() {
+        this.root = new Node<>();
+    }
+
+    void put(Path path, V value) {
+        Node<V> node = this.root.children.computeIfAbsent(rootOf(path), root -> new Node<>());
+        for ( Path segment : path ) {
+            node = node.children.computeIfAbsent(segment, newSegment -> new Node<>());
+        }
+        node.value = value;
+    }
+
+    V get(Path path) {
+        Node<V> node = this.root.children.get(rootOf(path));
+        for ( int i = 0; nonNull(node) && i < path.getNameCount(); i++ ) {
+            node = node.children.get(path.getName(i));
+        }
+
+        if ( isNull(node) ) {
+            return null;
+        }
+
+        return node.value;
+    }
+
+    /* value of the path itself or of its closest ancestor that has value */
+    V getOfSelfOrAncestor(Path path) {
+        Node<V> node = this.root.children.get(rootOf(path));
+        for ( int i = 0; nonNull(node) && i < path.getNameCount(); i++ ) {
+            if ( nonNull(node.value) ) {
+                return node.value;
+            }
+            node = node.children.get(path.getName(i));
+        }
+
+        if ( isNull(node) ) {
+            return null;
+        }
+
+        return node.value;
+    }
+
+    boolean isEmpty() {
+        return this.root.children.isEmpty();
+    }
+
+    private static Path rootOf(Path path) {
+        Path root = path.getRoot();
+        if ( isNull(root) ) {
+            return path.getFileSystem().getPath("");
+        }
+        return root;
+    }
+}
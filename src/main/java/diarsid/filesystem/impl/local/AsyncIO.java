@@ -0,0 +1,99 @@
+package diarsid.filesystem.impl.local;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import diarsid.support.concurrency.threads.NamedThreadSource;
+
+import static java.util.Objects.nonNull;
+
+import static diarsid.filesystem.api.Diagnostics.Category.IO;
+import static diarsid.filesystem.api.Diagnostics.event;
+
+/*
+ * Runs blocking file system operations off the caller thread. Virtual threads are used when
+ * runtime has them, otherwise operations run in a cached pool of named threads.
+ * Cancellation of a returned future interrupts the thread that runs the operation, an operation
+ * that has not started yet is not run at all.
+ */
+class AsyncIO {
+
+    private static class Operation<T> extends CompletableFuture<T> implements Runnable {
+
+        private final Callable<T> callable;
+        private Thread runner;
+
+        private Operation(Callable<T> callable) {
+            this.callable = callable;
+        }
+
+        @Override
+        public void run() {
+            synchronized ( this ) {
+                if ( this.isDone() ) {
+                    return;
+                }
+                this.runner = Thread.currentThread();
+            }
+
+            try {
+                this.complete(this.callable.call());
+            }
+            catch (Throwable t) {
+                this.completeExceptionally(t);
+            }
+            finally {
+                synchronized ( this ) {
+                    this.runner = null;
+                }
+                /* interruption by late cancel must not leak to the next task of this thread */
+                Thread.interrupted();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+
+            if ( cancelled ) {
+                synchronized ( this ) {
+                    if ( nonNull(this.runner) ) {
+                        this.runner.interrupt();
+                    }
+                }
+            }
+
+            return cancelled;
+        }
+    }
+
+    private final Executor executor;
+
+    AsyncIO(NamedThreadSource namedThreadSource) {
+        Executor virtualThreads = virtualThreadsExecutor();
+        if ( nonNull(virtualThreads) ) {
+            this.executor = virtualThreads;
+        }
+        else {
+            this.executor = namedThreadSource.newNamedCachedThreadPool("filesystem.io");
+        }
+    }
+
+    private static Executor virtualThreadsExecutor() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            event(IO, () -> "[async] virtual threads are not available: " + e);
+            return null;
+        }
+    }
+
+    <T> CompletableFuture<T> supply(Callable<T> operation) {
+        Operation<T> asyncOperation = new Operation<>(operation);
+        this.executor.execute(asyncOperation);
+        return asyncOperation;
+    }
+}
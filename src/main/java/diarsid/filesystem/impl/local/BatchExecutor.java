@@ -0,0 +1,140 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import diarsid.filesystem.api.BatchResult;
+import diarsid.filesystem.api.FSEntry;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/*
+ * Executes one operation for every entry of a batch. Entries are grouped by their topmost
+ * ancestor in the batch: entries of one group are processed sequentially in FSEntry.compareByDepth
+ * order, different groups are independent and are processed concurrently by at most parallelism
+ * workers.
+ */
+class BatchExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchExecutor.class);
+
+    private final Executor executor;
+    private final int parallelism;
+
+    BatchExecutor(Executor executor, int parallelism) {
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    BatchResult execute(
+            List<FSEntry> entries,
+            Predicate<FSEntry> operation,
+            ProgressTrackerBack<FSEntry> progressTracker) {
+        List<FSEntry> orderedEntries = new ArrayList<>(entries);
+        orderedEntries.sort(FSEntry.compareByDepth);
+
+        ConcurrentLinkedQueue<List<FSEntry>> groups = new ConcurrentLinkedQueue<>(groupsOf(orderedEntries));
+        Map<FSEntry, BatchResult.Outcome> outcomes = new ConcurrentHashMap<>();
+
+        progressTracker.begin(orderedEntries);
+
+        int workersCount = Math.min(this.parallelism, groups.size());
+        if ( workersCount < 2 ) {
+            processAll(groups, operation, progressTracker, outcomes);
+        }
+        else {
+            CompletableFuture<?>[] workers = new CompletableFuture<?>[workersCount];
+            for ( int i = 0; i < workersCount; i++ ) {
+                workers[i] = CompletableFuture.runAsync(
+                        () -> processAll(groups, operation, progressTracker, outcomes),
+                        this.executor);
+            }
+            CompletableFuture.allOf(workers).join();
+        }
+
+        progressTracker.completed();
+
+        return new BatchResult(entries, outcomes);
+    }
+
+    /* entries must be sorted by FSEntry.compareByDepth, order is kept inside of groups */
+    static List<List<FSEntry>> groupsOf(List<FSEntry> entries) {
+        Map<Path, List<FSEntry>> groupsByTopPath = new HashMap<>();
+        List<List<FSEntry>> groups = new ArrayList<>();
+
+        List<FSEntry> group;
+        for ( int i = entries.size() - 1; i > -1; i-- ) {
+            FSEntry entry = entries.get(i);
+            group = groupOf(groupsByTopPath, entry.path());
+
+            if ( isNull(group) ) {
+                group = new ArrayList<>();
+                groupsByTopPath.put(entry.path(), group);
+                groups.add(group);
+            }
+
+            group.add(entry);
+        }
+
+        groups.forEach(Collections::reverse);
+
+        return groups;
+    }
+
+    private static List<FSEntry> groupOf(Map<Path, List<FSEntry>> groupsByTopPath, Path path) {
+        List<FSEntry> group;
+        Path ancestor = path;
+        while ( nonNull(ancestor) ) {
+            group = groupsByTopPath.get(ancestor);
+            if ( nonNull(group) ) {
+                return group;
+            }
+            ancestor = ancestor.getParent();
+        }
+        return null;
+    }
+
+    private static void processAll(
+            ConcurrentLinkedQueue<List<FSEntry>> groups,
+            Predicate<FSEntry> operation,
+            ProgressTrackerBack<FSEntry> progressTracker,
+            Map<FSEntry, BatchResult.Outcome> outcomes) {
+        List<FSEntry> group;
+        while ( nonNull(group = groups.poll()) ) {
+            for ( FSEntry entry : group ) {
+                progressTracker.processing(entry);
+
+                boolean done;
+                try {
+                    done = operation.test(entry);
+                }
+                catch (RuntimeException e) {
+                    log.error("Batch operation has failed for " + entry.path(), e);
+                    done = false;
+                }
+
+                if ( done ) {
+                    outcomes.put(entry, BatchResult.Outcome.DONE);
+                    progressTracker.processingDone(entry);
+                }
+                else {
+                    outcomes.put(entry, BatchResult.Outcome.FAILED);
+                    progressTracker.processingFailed(entry);
+                }
+            }
+        }
+    }
+}
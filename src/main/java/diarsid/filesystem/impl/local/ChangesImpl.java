@@ -2,10 +2,12 @@ package diarsid.filesystem.impl.local;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 
 import diarsid.filesystem.api.FSEntry;
 import diarsid.filesystem.api.FileSystem;
+import diarsid.filesystem.api.FileSystemSettings.ChangesDispatch;
 import diarsid.support.callbacks.ValueCallback;
 import diarsid.support.callbacks.groups.ActiveCallback;
 import diarsid.support.callbacks.groups.AsyncValueCallbacks;
@@ -13,44 +15,117 @@ import diarsid.support.concurrency.threads.NamedThreadSource;
 
 import static java.util.Collections.singletonList;
 
-import static diarsid.support.concurrency.ThreadUtils.currentThreadTrack;
+import static diarsid.filesystem.api.Diagnostics.Category.CHANGES;
+import static diarsid.filesystem.api.Diagnostics.eventWithOrigin;
 
 public class ChangesImpl implements FileSystem.Changes {
 
+    private final ChangesDispatch dispatch;
+    private final Executor executor;
     private final AsyncValueCallbacks<List<FSEntry>> pathsAddedCallbacks;
     private final AsyncValueCallbacks<List<Path>> pathsRemovedCallbacks;
+    private final AsyncValueCallbacks<List<FSEntry>> internalPathsAddedCallbacks;
+    private final AsyncValueCallbacks<List<Path>> internalPathsRemovedCallbacks;
+    private final List<ChangesQueue<FSEntry>> pathsAddedQueues;
+    private final List<ChangesQueue<Path>> pathsRemovedQueues;
 
     public ChangesImpl(NamedThreadSource namedThreadSource) {
-        Executor executor = namedThreadSource.newNamedCachedThreadPool("filesystem.activities");
-        this.pathsAddedCallbacks = new AsyncValueCallbacks<>(executor);
-        this.pathsRemovedCallbacks = new AsyncValueCallbacks<>(executor);
+        this(namedThreadSource, ChangesDispatch.AWAIT);
+    }
+
+    public ChangesImpl(NamedThreadSource namedThreadSource, ChangesDispatch dispatch) {
+        this.dispatch = dispatch;
+        this.executor = namedThreadSource.newNamedCachedThreadPool("filesystem.activities");
+        this.pathsAddedCallbacks = new AsyncValueCallbacks<>(this.executor);
+        this.pathsRemovedCallbacks = new AsyncValueCallbacks<>(this.executor);
+        this.internalPathsAddedCallbacks = new AsyncValueCallbacks<>(Runnable::run);
+        this.internalPathsRemovedCallbacks = new AsyncValueCallbacks<>(Runnable::run);
+        this.pathsAddedQueues = new CopyOnWriteArrayList<>();
+        this.pathsRemovedQueues = new CopyOnWriteArrayList<>();
     }
 
     void added(FSEntry entry) {
-        currentThreadTrack("diarsid", (element) -> System.out.println("    " + element));
-        this.pathsAddedCallbacks.callAndAwait(singletonList(entry));
+        eventWithOrigin(CHANGES, () -> "added " + entry.path());
+        this.dispatchAdded(singletonList(entry));
     }
 
     void added(List<FSEntry> paths) {
-        currentThreadTrack("diarsid", (element) -> System.out.println("    " + element));
-        this.pathsAddedCallbacks.callAndAwait(paths);
+        eventWithOrigin(CHANGES, () -> "added " + paths.size() + " entries");
+        this.dispatchAdded(paths);
     }
 
     void removed(Path path) {
-        this.pathsRemovedCallbacks.callAndAwait(singletonList(path));
+        eventWithOrigin(CHANGES, () -> "removed " + path);
+        this.dispatchRemoved(singletonList(path));
     }
 
     void removed(List<Path> paths) {
-        this.pathsRemovedCallbacks.callAndAwait(paths);
+        eventWithOrigin(CHANGES, () -> "removed " + paths.size() + " paths");
+        this.dispatchRemoved(paths);
+    }
+
+    private void dispatchAdded(List<FSEntry> entries) {
+        this.internalPathsAddedCallbacks.callAndAwait(entries);
+
+        if ( this.dispatch.isAsync() ) {
+            for ( ChangesQueue<FSEntry> queue : this.pathsAddedQueues ) {
+                queue.offer(entries);
+            }
+        }
+        else {
+            this.pathsAddedCallbacks.callAndAwait(entries);
+        }
+    }
+
+    private void dispatchRemoved(List<Path> paths) {
+        this.internalPathsRemovedCallbacks.callAndAwait(paths);
+
+        if ( this.dispatch.isAsync() ) {
+            for ( ChangesQueue<Path> queue : this.pathsRemovedQueues ) {
+                queue.offer(paths);
+            }
+        }
+        else {
+            this.pathsRemovedCallbacks.callAndAwait(paths);
+        }
+    }
+
+    /*
+     * Internal bookkeeping of file system - caches and watchers - is done in the thread of operation
+     * before its changes are given to any user listener, regardless of dispatch mode, so that it is
+     * never dropped by overflow policy and is done when operation returns.
+     */
+    ActiveCallback<ValueCallback<List<FSEntry>>> listenInternallyForEntriesAdded(ValueCallback<List<FSEntry>> callback) {
+        return this.internalPathsAddedCallbacks.add(callback);
+    }
+
+    ActiveCallback<ValueCallback<List<Path>>> listenInternallyForEntriesRemoved(ValueCallback<List<Path>> callback) {
+        return this.internalPathsRemovedCallbacks.add(callback);
     }
 
     @Override
     public ActiveCallback<ValueCallback<List<FSEntry>>> listenForEntriesAdded(ValueCallback<List<FSEntry>> callback) {
-        return this.pathsAddedCallbacks.add(callback);
+        if ( this.dispatch.isAsync() ) {
+            ChangesQueue<FSEntry> queue = new ChangesQueue<>(this.dispatch, this.executor, this.pathsAddedQueues::remove);
+            ActiveCallback<ValueCallback<List<FSEntry>>> activeCallback = queue.listen(callback);
+            this.pathsAddedQueues.add(queue);
+            return activeCallback;
+        }
+        else {
+            return this.pathsAddedCallbacks.add(callback);
+        }
     }
 
     @Override
     public ActiveCallback<ValueCallback<List<Path>>> listenForEntriesRemoved(ValueCallback<List<Path>> callback) {
-        return this.pathsRemovedCallbacks.add(callback);
+        if ( this.dispatch.isAsync() ) {
+            ChangesQueue<Path> queue = new ChangesQueue<>(this.dispatch, this.executor, this.pathsRemovedQueues::remove);
+            ActiveCallback<ValueCallback<List<Path>>> activeCallback = queue.listen(callback);
+            this.pathsRemovedQueues.add(queue);
+            return activeCallback;
+        }
+        else {
+            return this.pathsRemovedCallbacks.add(callback);
+        }
     }
 }
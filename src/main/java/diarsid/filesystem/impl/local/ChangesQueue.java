@@ -0,0 +1,175 @@
+package diarsid.filesystem.impl.local;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import diarsid.filesystem.api.FileSystemSettings.ChangesDispatch;
+import diarsid.support.callbacks.ValueCallback;
+import diarsid.support.callbacks.groups.ActiveCallback;
+import diarsid.support.callbacks.groups.AsyncValueCallbacks;
+
+import static java.util.Objects.isNull;
+
+import static diarsid.filesystem.api.Diagnostics.Category.CHANGES;
+import static diarsid.filesystem.api.Diagnostics.event;
+
+/*
+ * Bounded queue of change batches of one listener. Batches are delivered by at most one
+ * task at a time, so listener receives them in the order they have been offered.
+ * Listener that makes changes itself offers batches from a delivering thread, such offer never
+ * waits for free place - nobody else could free it - and queue grows over its capacity instead.
+ * When a batch is delivered to nobody, the listener has been cancelled: queue is closed, its
+ * batches are dropped and it is removed by onClosed.
+ */
+class ChangesQueue<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangesQueue.class);
+
+    private static final ThreadLocal<Boolean> DELIVERING = ThreadLocal.withInitial(() -> false);
+
+    private final ArrayDeque<List<T>> batches;
+    private final int capacity;
+    private final ChangesDispatch.OverflowPolicy overflowPolicy;
+    private final ReentrantLock lock;
+    private final Condition notFull;
+    private final AsyncValueCallbacks<List<T>> listener;
+    private final Executor executor;
+    private final Consumer<ChangesQueue<T>> onClosed;
+    private boolean draining;
+    private boolean closed;
+    private boolean delivered;
+
+    ChangesQueue(ChangesDispatch dispatch, Executor executor, Consumer<ChangesQueue<T>> onClosed) {
+        this.batches = new ArrayDeque<>(dispatch.capacity());
+        this.capacity = dispatch.capacity();
+        this.overflowPolicy = dispatch.overflowPolicy();
+        this.lock = new ReentrantLock();
+        this.notFull = this.lock.newCondition();
+        this.listener = new AsyncValueCallbacks<>(Runnable::run);
+        this.executor = executor;
+        this.onClosed = onClosed;
+        this.draining = false;
+        this.closed = false;
+        this.delivered = false;
+    }
+
+    ActiveCallback<ValueCallback<List<T>>> listen(ValueCallback<List<T>> callback) {
+        return this.listener.add(batch -> {
+            /* written and read only by the draining thread */
+            this.delivered = true;
+            callback.call(batch);
+        });
+    }
+
+    void offer(List<T> batch) {
+        boolean startDraining = false;
+
+        this.lock.lock();
+        try {
+            if ( this.closed ) {
+                return;
+            }
+
+            if ( this.batches.size() >= this.capacity ) {
+                switch ( this.overflowPolicy ) {
+                    case BLOCK:
+                        if ( DELIVERING.get() ) {
+                            break;
+                        }
+                        while ( this.batches.size() >= this.capacity && ! this.closed ) {
+                            this.notFull.awaitUninterruptibly();
+                        }
+                        if ( this.closed ) {
+                            return;
+                        }
+                        break;
+                    case DROP_OLDEST:
+                        List<T> dropped = this.batches.pollFirst();
+                        event(CHANGES, () -> "dropped batch of " + dropped.size() + " changes");
+                        break;
+                    case COALESCE:
+                        List<T> merged = new ArrayList<>(this.batches.pollLast());
+                        merged.addAll(batch);
+                        batch = merged;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown overflow policy: " + this.overflowPolicy);
+                }
+            }
+
+            this.batches.addLast(batch);
+
+            if ( ! this.draining ) {
+                this.draining = true;
+                startDraining = true;
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+
+        if ( startDraining ) {
+            this.executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        List<T> batch;
+        while ( true ) {
+            this.lock.lock();
+            try {
+                batch = this.batches.pollFirst();
+
+                if ( isNull(batch) ) {
+                    this.draining = false;
+                    return;
+                }
+
+                this.notFull.signalAll();
+            }
+            finally {
+                this.lock.unlock();
+            }
+
+            this.delivered = false;
+            DELIVERING.set(true);
+            try {
+                this.listener.callAndAwait(batch);
+            }
+            catch (Exception e) {
+                log.error("Changes listener has failed", e);
+            }
+            finally {
+                DELIVERING.set(false);
+            }
+
+            if ( ! this.delivered ) {
+                this.close();
+                return;
+            }
+        }
+    }
+
+    private void close() {
+        this.lock.lock();
+        try {
+            this.closed = true;
+            this.draining = false;
+            this.batches.clear();
+            this.notFull.signalAll();
+        }
+        finally {
+            this.lock.unlock();
+        }
+
+        this.onClosed.accept(this);
+    }
+}
@@ -0,0 +1,120 @@
+package diarsid.filesystem.impl.local;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import diarsid.filesystem.api.ChildPage;
+import diarsid.filesystem.api.ChildQuery;
+import diarsid.filesystem.api.FSEntry;
+
+import static java.util.Objects.nonNull;
+
+/*
+ * Collects one page of children while they are being listed. Unsorted page is filled as entries
+ * come and listing can be stopped as soon as one entry after the page is seen. Sorted page keeps
+ * only pageSize + 1 smallest entries in a heap, so memory does not depend on directory size and
+ * directory is not sorted as a whole.
+ */
+class ChildPaging {
+
+    private final ChildQuery query;
+    private final List<FSEntry> unsortedEntries;
+    private final PriorityQueue<FSEntry> sortedEntries;
+    private long skipped;
+    private boolean hasNext;
+
+    ChildPaging(ChildQuery query) {
+        this.query = query;
+        if ( query.isSorted() ) {
+            this.unsortedEntries = null;
+            this.sortedEntries = new PriorityQueue<>(query.pageSize() + 1, query.comparator().reversed());
+        }
+        else {
+            this.unsortedEntries = new ArrayList<>();
+            this.sortedEntries = null;
+        }
+        this.skipped = 0;
+        this.hasNext = false;
+    }
+
+    /* already returned children of unfiltered unsorted query need no entries to be skipped */
+    boolean isSkippingPaths() {
+        return ! this.query.isSorted() && ! this.query.isFiltered() && this.skipped < this.query.returnedCount();
+    }
+
+    void skipPath() {
+        this.skipped++;
+    }
+
+    /* returns false when listing can be stopped */
+    boolean accept(FSEntry entry) {
+        if ( ! this.query.filter().test(entry) ) {
+            return true;
+        }
+
+        if ( this.query.isSorted() ) {
+            this.acceptSorted(entry);
+            return true;
+        }
+        else {
+            return this.acceptUnsorted(entry);
+        }
+    }
+
+    private boolean acceptUnsorted(FSEntry entry) {
+        if ( this.skipped < this.query.returnedCount() ) {
+            this.skipped++;
+            return true;
+        }
+
+        if ( this.unsortedEntries.size() == this.query.pageSize() ) {
+            this.hasNext = true;
+            return false;
+        }
+
+        this.unsortedEntries.add(entry);
+        return true;
+    }
+
+    private void acceptSorted(FSEntry entry) {
+        Comparator<FSEntry> comparator = this.query.comparator();
+        FSEntry lastEntry = this.query.lastEntry();
+
+        if ( nonNull(lastEntry) && comparator.compare(entry, lastEntry) <= 0 ) {
+            return;
+        }
+
+        if ( this.sortedEntries.size() <= this.query.pageSize() ) {
+            this.sortedEntries.add(entry);
+        }
+        else if ( comparator.compare(entry, this.sortedEntries.peek()) < 0 ) {
+            this.sortedEntries.poll();
+            this.sortedEntries.add(entry);
+        }
+    }
+
+    ChildPage page() {
+        List<FSEntry> entries;
+
+        if ( this.query.isSorted() ) {
+            if ( this.sortedEntries.size() > this.query.pageSize() ) {
+                this.sortedEntries.poll();
+                this.hasNext = true;
+            }
+            entries = new ArrayList<>(this.sortedEntries);
+            entries.sort(this.query.comparator());
+        }
+        else {
+            entries = this.unsortedEntries;
+        }
+
+        if ( this.hasNext ) {
+            return new ChildPage(entries, this.query.continuedAfter(entries));
+        }
+        else {
+            return new ChildPage(entries, null);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package diarsid.filesystem.impl.local;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.Predicate;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+
+/*
+ * Answers questions about directory children straight from DirectoryStream without creating
+ * FSEntries. Presence checks stop at the first matching child. Children are checked against
+ * ignores by their paths, so counting and checking for any child does not touch children at all.
+ * Type of a child is read by one readAttributes call without following links, it is free when
+ * directory stream already carries attributes (as it does on Windows), a link is followed only
+ * when it is met.
+ */
+class DirectoryListing {
+
+    enum Kind {
+        ANY,
+        FILES,
+        DIRECTORIES
+    }
+
+    private final Predicate<Path> ignored;
+
+    DirectoryListing(Predicate<Path> ignored) {
+        this.ignored = ignored;
+    }
+
+    boolean hasAny(Path directory, Kind kind) throws IOException {
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            for ( Path child : children ) {
+                if ( this.ignored.test(child) ) {
+                    continue;
+                }
+
+                if ( isOfKind(child, kind) ) {
+                    return true;
+                }
+            }
+        }
+        catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+
+        return false;
+    }
+
+    long count(Path directory) throws IOException {
+        long count = 0;
+
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            for ( Path child : children ) {
+                if ( ! this.ignored.test(child) ) {
+                    count++;
+                }
+            }
+        }
+        catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+
+        return count;
+    }
+
+    private static boolean isOfKind(Path child, Kind kind) throws IOException {
+        if ( kind == Kind.ANY ) {
+            return true;
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(child, BasicFileAttributes.class, NOFOLLOW_LINKS);
+        }
+        catch (NoSuchFileException e) {
+            return false;
+        }
+
+        if ( attributes.isSymbolicLink() ) {
+            if ( kind == Kind.DIRECTORIES ) {
+                return Files.isDirectory(child);
+            }
+            else {
+                return Files.isRegularFile(child);
+            }
+        }
+
+        if ( kind == Kind.DIRECTORIES ) {
+            return attributes.isDirectory();
+        }
+        else {
+            return attributes.isRegularFile();
+        }
+    }
+}
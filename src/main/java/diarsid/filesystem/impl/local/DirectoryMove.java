@@ -0,0 +1,124 @@
+package diarsid.filesystem.impl.local;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+import static diarsid.filesystem.api.Diagnostics.Category.MOVE;
+import static diarsid.filesystem.api.Diagnostics.event;
+
+/*
+ * Moves directory tree. When source and target are on the same FileStore, tree is moved by one
+ * atomic rename. Otherwise it is copied in parallel and then source is removed in parallel, if copy
+ * fails, already copied part of target is removed back and source stays untouched.
+ * Source tree is walked only once, entries of moved tree are derived from this walk.
+ */
+class DirectoryMove {
+
+    static class Moving {
+
+        private final TreeWalk source;
+        private boolean atomic;
+        private boolean copied;
+        private final List<Path> removedSources;
+        private final List<IOException> failures;
+
+        private Moving(TreeWalk source) {
+            this.source = source;
+            this.atomic = false;
+            this.copied = false;
+            this.removedSources = new ArrayList<>();
+            this.failures = new ArrayList<>();
+        }
+
+        TreeWalk source() {
+            return this.source;
+        }
+
+        /* whole tree is in target */
+        boolean isMoved() {
+            return this.atomic || this.copied;
+        }
+
+        /* whole tree is in target and nothing is left in source */
+        boolean isComplete() {
+            return this.isMoved() && this.failures.isEmpty();
+        }
+
+        /* children go before their parents */
+        List<Path> removedSources() {
+            if ( this.atomic ) {
+                return this.source.pathsBottomUp();
+            }
+            else {
+                return this.removedSources;
+            }
+        }
+
+        List<IOException> failures() {
+            return this.failures;
+        }
+    }
+
+    private final ParallelCopy parallelCopy;
+    private final ParallelRemove parallelRemove;
+
+    DirectoryMove(ParallelCopy parallelCopy, ParallelRemove parallelRemove) {
+        this.parallelCopy = parallelCopy;
+        this.parallelRemove = parallelRemove;
+    }
+
+    Moving move(Path source, Path target, FileTransfer.Progress progress) throws IOException {
+        if ( Files.exists(target, NOFOLLOW_LINKS) ) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+
+        Moving moving = new Moving(TreeWalk.of(source));
+
+        if ( Files.getFileStore(source).equals(Files.getFileStore(target.getParent())) ) {
+            try {
+                event(MOVE, () -> "[move] " + source + " -> " + target + " by rename");
+                Files.move(source, target, ATOMIC_MOVE);
+                moving.atomic = true;
+                return moving;
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                /* go on with copying */
+            }
+        }
+
+        event(MOVE, () -> "[move] " + source + " -> " + target + " by copying");
+
+        List<IOException> copyFailures = this.parallelCopy.copy(source, target, progress);
+
+        if ( ! copyFailures.isEmpty() ) {
+            moving.failures.addAll(copyFailures);
+            this.rollback(target, moving);
+            return moving;
+        }
+
+        moving.copied = true;
+
+        ParallelRemove.Removal removal = this.parallelRemove.remove(source, moving.removedSources::addAll);
+        moving.failures.addAll(removal.failures().values());
+
+        return moving;
+    }
+
+    private void rollback(Path target, Moving moving) {
+        if ( ! Files.exists(target, NOFOLLOW_LINKS) ) {
+            return;
+        }
+
+        event(MOVE, () -> "[move] rollback of " + target);
+        ParallelRemove.Removal removal = this.parallelRemove.remove(target, removed -> {});
+        moving.failures.addAll(removal.failures().values());
+    }
+}
@@ -0,0 +1,219 @@
+package diarsid.filesystem.impl.local;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.util.Collections.emptySet;
+import static java.util.Objects.isNull;
+
+/*
+ * Names and modification times of direct children of a watched directory.
+ * Kept up to date by watch events and used to find out what has been missed
+ * when OS reports OVERFLOW for this directory.
+ */
+class DirectorySnapshot {
+
+    static class Difference {
+
+        private final List<Path> removed;
+        private final List<Path> addedFiles;
+        private final List<Path> addedDirectories;
+
+        private Difference() {
+            this.removed = new ArrayList<>();
+            this.addedFiles = new ArrayList<>();
+            this.addedDirectories = new ArrayList<>();
+        }
+
+        List<Path> removed() {
+            return this.removed;
+        }
+
+        List<Path> addedFiles() {
+            return this.addedFiles;
+        }
+
+        List<Path> addedDirectories() {
+            return this.addedDirectories;
+        }
+
+        boolean isEmpty() {
+            return this.removed.isEmpty() && this.addedFiles.isEmpty() && this.addedDirectories.isEmpty();
+        }
+
+        private void added(DirectorySnapshot fresh, String name) {
+            Path path = fresh.directory.resolve(name);
+            if ( fresh.directoryNames.contains(name) ) {
+                this.addedDirectories.add(path);
+            }
+            else {
+                this.addedFiles.add(path);
+            }
+        }
+    }
+
+    private static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
+    private final Path directory;
+    private final Map<String, Long> lastModifiedByNames;
+    private final Set<String> directoryNames;
+
+    private DirectorySnapshot(Path directory) {
+        this.directory = directory;
+        this.lastModifiedByNames = new HashMap<>();
+        this.directoryNames = new HashSet<>();
+    }
+
+    static DirectorySnapshot of(Path directory) throws IOException {
+        DirectorySnapshot snapshot = new DirectorySnapshot(directory);
+
+        Files.walkFileTree(directory, emptySet(), 1, new SimpleFileVisitor<>() {
+
+            @Override
+            public FileVisitResult visitFile(Path child, BasicFileAttributes attributes) {
+                String name = child.getFileName().toString();
+                snapshot.lastModifiedByNames.put(name, attributes.lastModifiedTime().toMillis());
+                if ( attributes.isDirectory() ) {
+                    snapshot.directoryNames.add(name);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path child, IOException e) {
+                snapshot.lastModifiedByNames.put(child.getFileName().toString(), UNKNOWN_TIME);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        return snapshot;
+    }
+
+    Path directory() {
+        return this.directory;
+    }
+
+    void created(Path child) {
+        this.refresh(child);
+    }
+
+    /* modified child keeps its actual time, so that next OVERFLOW does not take it as replaced */
+    void modified(Path child) {
+        String name = child.getFileName().toString();
+
+        synchronized ( this ) {
+            if ( ! this.lastModifiedByNames.containsKey(name) ) {
+                return;
+            }
+        }
+
+        this.refresh(child);
+    }
+
+    private void refresh(Path child) {
+        String name = child.getFileName().toString();
+
+        long lastModified;
+        boolean isDirectory;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class, NOFOLLOW_LINKS);
+            lastModified = attributes.lastModifiedTime().toMillis();
+            isDirectory = attributes.isDirectory();
+        }
+        catch (IOException e) {
+            lastModified = UNKNOWN_TIME;
+            isDirectory = false;
+        }
+
+        synchronized ( this ) {
+            this.lastModifiedByNames.put(name, lastModified);
+            if ( isDirectory ) {
+                this.directoryNames.add(name);
+            }
+            else {
+                this.directoryNames.remove(name);
+            }
+        }
+    }
+
+    synchronized void removed(Path child) {
+        String name = child.getFileName().toString();
+        this.lastModifiedByNames.remove(name);
+        this.directoryNames.remove(name);
+    }
+
+    synchronized void forEachChild(BiConsumer<Path, Boolean> childAndIsDirectory) {
+        for ( String name : this.lastModifiedByNames.keySet() ) {
+            childAndIsDirectory.accept(this.directory.resolve(name), this.directoryNames.contains(name));
+        }
+    }
+
+    /*
+     * Compares this snapshot with a fresh one and takes its state. File which exists in both
+     * but has other modification time, or entry which has changed its type, is considered
+     * as replaced and goes both to removed and added. Modification time of directories is not
+     * compared as it changes with any change of their content.
+     */
+    synchronized Difference takeStateOf(DirectorySnapshot fresh) {
+        Difference difference = new Difference();
+
+        String name;
+        Long lastModified;
+        boolean wasDirectory;
+        boolean isDirectory;
+        boolean replaced;
+        for ( Map.Entry<String, Long> freshChild : fresh.lastModifiedByNames.entrySet() ) {
+            name = freshChild.getKey();
+            lastModified = this.lastModifiedByNames.get(name);
+
+            if ( isNull(lastModified) ) {
+                difference.added(fresh, name);
+                continue;
+            }
+
+            if ( lastModified == UNKNOWN_TIME ) {
+                continue;
+            }
+
+            wasDirectory = this.directoryNames.contains(name);
+            isDirectory = fresh.directoryNames.contains(name);
+
+            if ( wasDirectory != isDirectory ) {
+                replaced = true;
+            }
+            else {
+                replaced = ( ! isDirectory ) && ( ! lastModified.equals(freshChild.getValue()) );
+            }
+
+            if ( replaced ) {
+                difference.removed.add(this.directory.resolve(name));
+                difference.added(fresh, name);
+            }
+        }
+
+        for ( String oldName : this.lastModifiedByNames.keySet() ) {
+            if ( ! fresh.lastModifiedByNames.containsKey(oldName) ) {
+                difference.removed.add(this.directory.resolve(oldName));
+            }
+        }
+
+        this.lastModifiedByNames.clear();
+        this.lastModifiedByNames.putAll(fresh.lastModifiedByNames);
+        this.directoryNames.clear();
+        this.directoryNames.addAll(fresh.directoryNames);
+
+        return difference;
+    }
+}
@@ -0,0 +1,115 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import diarsid.filesystem.api.FSEntry;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/*
+ * Bounded cache of entries by their absolute paths, least recently used entries are evicted
+ * when capacity is exceeded. Capacity 0 disables caching. Entries are invalidated when their
+ * paths are reported as removed, removal of any path invalidates its whole subtree.
+ * Cache is not aware of changes that are not passed through FileSystem.Changes, so entries
+ * that are neither watched nor changed by this file system may outlive their files.
+ */
+class EntriesCache {
+
+    private final int capacity;
+    private final LinkedHashMap<Path, FSEntry> entriesByUsage;
+    private final TreeMap<Path, FSEntry> entriesBySubtrees;
+
+    EntriesCache(int capacity) {
+        this.capacity = capacity;
+        this.entriesBySubtrees = new TreeMap<>(Subtrees.ORDER);
+        this.entriesByUsage = new LinkedHashMap<>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, FSEntry> eldest) {
+                if ( this.size() > EntriesCache.this.capacity ) {
+                    EntriesCache.this.entriesBySubtrees.remove(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    boolean isEnabled() {
+        return this.capacity > 0;
+    }
+
+    synchronized FSEntry get(Path path) {
+        if ( this.capacity == 0 || ! path.isAbsolute() ) {
+            return null;
+        }
+
+        return this.entriesByUsage.get(path);
+    }
+
+    /* returns cached entry of the same type or caches a new one */
+    synchronized <E extends FSEntry> E get(Path path, Class<E> type, Function<Path, E> creation) {
+        if ( this.capacity == 0 || ! path.isAbsolute() ) {
+            return creation.apply(path);
+        }
+
+        FSEntry cached = this.entriesByUsage.get(path);
+        if ( type.isInstance(cached) ) {
+            return type.cast(cached);
+        }
+
+        E entry = creation.apply(path);
+        if ( nonNull(cached) ) {
+            this.invalidate(path);
+        }
+        this.entriesByUsage.put(path, entry);
+        this.entriesBySubtrees.put(path, entry);
+        return entry;
+    }
+
+    synchronized void invalidate(List<Path> paths) {
+        if ( this.capacity == 0 ) {
+            return;
+        }
+
+        for ( Path path : paths ) {
+            this.invalidate(path);
+        }
+    }
+
+    /* added entry replaces cached entry of another type on the same path, if any */
+    synchronized void replace(List<FSEntry> entries) {
+        if ( this.capacity == 0 ) {
+            return;
+        }
+
+        FSEntry cached;
+        for ( FSEntry entry : entries ) {
+            cached = this.entriesBySubtrees.get(entry.path());
+            if ( isNull(cached) || cached.isDirectory() == entry.isDirectory() ) {
+                continue;
+            }
+            this.invalidate(entry.path());
+            this.entriesByUsage.put(entry.path(), entry);
+            this.entriesBySubtrees.put(entry.path(), entry);
+        }
+    }
+
+    synchronized int size() {
+        return this.entriesByUsage.size();
+    }
+
+    /* path itself may be not cached while its descendants are */
+    private void invalidate(Path path) {
+        List<FSEntry> subtree = Subtrees.removeSubtree(this.entriesBySubtrees, path);
+        for ( FSEntry entry : subtree ) {
+            this.entriesByUsage.remove(entry.path());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package diarsid.filesystem.impl.local;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Set;
+
+import static java.lang.System.nanoTime;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.util.Objects.nonNull;
+
+/*
+ * Attributes of file system entry read by one readAttributes call, symbolic link needs one more
+ * call to read attributes of its target. On POSIX file systems PosixFileAttributes are read, on
+ * DOS-like ones DosFileAttributes, to know hidden flag without one more call, otherwise
+ * BasicFileAttributes. Hidden on non-DOS file systems means that the
+ * name starts with a dot, as Files.isHidden does on Unix.
+ */
+class EntryAttributes {
+
+    private static final LinkOption[] FOLLOW = new LinkOption[0];
+
+    enum View {
+        POSIX,
+        DOS,
+        BASIC;
+
+        static View supportedBy(java.nio.file.FileSystem fileSystem) {
+            Set<String> views = fileSystem.supportedFileAttributeViews();
+
+            if ( views.contains("posix") ) {
+                return POSIX;
+            }
+            else if ( views.contains("dos") ) {
+                return DOS;
+            }
+            else {
+                return BASIC;
+            }
+        }
+
+        BasicFileAttributes read(Path path) throws IOException {
+            BasicFileAttributes attributes = this.read(path, NOFOLLOW_LINKS);
+
+            if ( ! attributes.isSymbolicLink() ) {
+                return attributes;
+            }
+
+            /* link is an entry of its target type, as toLocalFSEntry sees it, broken link is a file */
+            try {
+                return this.read(path, FOLLOW);
+            }
+            catch (FileSystemException e) {
+                return attributes;
+            }
+        }
+
+        private BasicFileAttributes read(Path path, LinkOption... options) throws IOException {
+            switch ( this ) {
+                case POSIX:
+                    return Files.readAttributes(path, PosixFileAttributes.class, options);
+                case DOS:
+                    return Files.readAttributes(path, DosFileAttributes.class, options);
+                default:
+                    return Files.readAttributes(path, BasicFileAttributes.class, options);
+            }
+        }
+    }
+
+    private final View view;
+    private final long maxAgeNanos;
+    private final BasicFileAttributes attributes;
+    private final boolean hidden;
+    private final long readTime;
+
+    private EntryAttributes(View view, long maxAgeNanos, BasicFileAttributes attributes, boolean hidden) {
+        this.view = view;
+        this.maxAgeNanos = maxAgeNanos;
+        this.attributes = attributes;
+        this.hidden = hidden;
+        this.readTime = nanoTime();
+    }
+
+    static EntryAttributes read(Path path, View view, long maxAgeNanos) throws IOException {
+        BasicFileAttributes attributes = view.read(path);
+
+        boolean hidden;
+        if ( attributes instanceof DosFileAttributes ) {
+            hidden = ((DosFileAttributes) attributes).isHidden();
+        }
+        else {
+            Path name = path.getFileName();
+            hidden = nonNull(name) && name.toString().startsWith(".");
+        }
+
+        return new EntryAttributes(view, maxAgeNanos, attributes, hidden);
+    }
+
+    EntryAttributes reread(Path path) throws IOException {
+        return read(path, this.view, this.maxAgeNanos);
+    }
+
+    boolean isDirectory() {
+        return this.attributes.isDirectory();
+    }
+
+    long size() {
+        return this.attributes.size();
+    }
+
+    boolean isHidden() {
+        return this.hidden;
+    }
+
+    LocalDateTime creationTime() {
+        return toLocalDateTime(this.attributes.creationTime());
+    }
+
+    LocalDateTime modificationTime() {
+        return toLocalDateTime(this.attributes.lastModifiedTime());
+    }
+
+    boolean isStale() {
+        return nanoTime() - this.readTime > this.maxAgeNanos;
+    }
+
+    static LocalDateTime toLocalDateTime(FileTime time) {
+        return LocalDateTime.ofInstant(time.toInstant(), ZoneId.systemDefault());
+    }
+}
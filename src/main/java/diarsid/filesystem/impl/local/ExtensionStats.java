@@ -0,0 +1,40 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import diarsid.filesystem.api.TreeStats;
+
+/*
+ * TreeStats are grouped from subtotal of the tree, subtotals of watched subtrees are cached and
+ * shared with TreeSizes.
+ */
+class ExtensionStats {
+
+    private final TreeTotals totals;
+
+    ExtensionStats(TreeTotals totals) {
+        this.totals = totals;
+    }
+
+    <K> TreeStats<K> statsOf(Path directory, TreeStats.GroupBy<K> groupBy) {
+        TreeTotals.Subtotal subtotal = this.totals.totalOf(directory);
+
+        Map<K, long[]> groups = new HashMap<>();
+        long[] group;
+        for ( int i = 0; i < subtotal.extensionsCount(); i++ ) {
+            group = groups.computeIfAbsent(groupBy.keyOf(subtotal.extension(i)), key -> new long[2]);
+            group[0] = group[0] + subtotal.files(i);
+            group[1] = group[1] + subtotal.bytes(i);
+        }
+
+        Map<K, TreeStats.Totals> totals = new HashMap<>();
+        groups.forEach((key, groupTotals) -> totals.put(key, new TreeStats.Totals(groupTotals[0], groupTotals[1])));
+
+        return new TreeStats<>(
+                totals,
+                new TreeStats.Totals(subtotal.filesWithoutExtension(), subtotal.bytesWithoutExtension()),
+                subtotal.unreadableDirectories());
+    }
+}
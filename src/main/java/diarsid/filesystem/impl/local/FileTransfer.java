@@ -0,0 +1,158 @@
+package diarsid.filesystem.impl.local;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.CopyOption;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+
+import diarsid.filesystem.api.FileSystemSettings;
+
+import static java.lang.System.nanoTime;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import static diarsid.filesystem.api.Diagnostics.Category.COPY;
+import static diarsid.filesystem.api.Diagnostics.event;
+
+/*
+ * Copies regular files. Small files are copied by Files.copy, large files are transferred by
+ * FileChannel.transferTo in chunks - on Linux it goes through sendfile/copy_file_range without
+ * copying bytes through the java heap.
+ */
+class FileTransfer {
+
+    interface Progress {
+
+        Progress NONE = (file, bytesDone, bytesAll) -> {};
+
+        void transferred(Path file, long bytesDone, long bytesAll);
+    }
+
+    static final String PART_SUFFIX = ".part";
+    static final String PART_SOURCE_SUFFIX = ".part.source";
+
+    private final FileSystemSettings.Transfer settings;
+
+    FileTransfer(FileSystemSettings.Transfer settings) {
+        this.settings = settings;
+    }
+
+    void copy(Path source, Path target, Progress progress, CopyOption... smallFileOptions) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+
+        if ( attributes.isRegularFile() && attributes.size() >= this.settings.largeFileThreshold() ) {
+            this.transferInChunks(source, target, attributes, progress);
+        }
+        else {
+            event(COPY, () -> "[copy] " + source + " -> " + target);
+            Files.copy(source, target, smallFileOptions);
+
+            if ( attributes.isRegularFile() ) {
+                progress.transferred(source, attributes.size(), attributes.size());
+            }
+        }
+    }
+
+    private void transferInChunks(
+            Path source, Path target, BasicFileAttributes sourceAttributes, Progress progress) throws IOException {
+        if ( Files.exists(target, NOFOLLOW_LINKS) ) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+
+        Path part = target.resolveSibling(target.getFileName().toString() + PART_SUFFIX);
+        Path partSource = target.resolveSibling(target.getFileName().toString() + PART_SOURCE_SUFFIX);
+        long size = sourceAttributes.size();
+        String sourceVersion = versionOf(sourceAttributes);
+
+        try (FileChannel sourceChannel = FileChannel.open(source, READ);
+             FileChannel partChannel = FileChannel.open(part, CREATE, WRITE)) {
+
+            long position = partChannel.size();
+            if ( position > size || ! sourceVersion.equals(readVersion(partSource)) ) {
+                /* not a part of this version of file, start from scratch */
+                partChannel.truncate(0);
+                position = 0;
+                Files.writeString(partSource, sourceVersion);
+            }
+
+            long resumedFrom = position;
+            event(COPY, () -> "[copy] " + source + " -> " + target + " in chunks from byte " + resumedFrom);
+
+            partChannel.position(position);
+            progress.transferred(source, position, size);
+
+            long startTime = nanoTime();
+            long transferred;
+            while ( position < size ) {
+                transferred = sourceChannel.transferTo(position, Math.min(this.settings.chunkSize(), size - position), partChannel);
+
+                if ( transferred <= 0 ) {
+                    throw new IOException(source + " has been truncated during copying");
+                }
+
+                position = position + transferred;
+                progress.transferred(source, position, size);
+
+                if ( this.settings.isBandwidthLimited() ) {
+                    this.throttle(position - resumedFrom, startTime);
+                }
+            }
+        }
+
+        this.copyAttributes(source, part, sourceAttributes);
+        Files.move(part, target, ATOMIC_MOVE);
+        Files.deleteIfExists(partSource);
+    }
+
+    /* size and modification time of source, written along with part file */
+    static String versionOf(BasicFileAttributes sourceAttributes) {
+        return sourceAttributes.size() + " " + sourceAttributes.lastModifiedTime().toMillis();
+    }
+
+    private static String readVersion(Path partSource) throws IOException {
+        try {
+            return Files.readString(partSource).strip();
+        }
+        catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void throttle(long bytesTransferred, long startTime) throws InterruptedIOException {
+        long expectedNanos = (long) (bytesTransferred * (double) SECONDS.toNanos(1) / this.settings.bytesPerSecond());
+        long aheadNanos = expectedNanos - (nanoTime() - startTime);
+
+        if ( aheadNanos > 0 ) {
+            try {
+                NANOSECONDS.sleep(aheadNanos);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Copying has been interrupted");
+            }
+        }
+    }
+
+    private void copyAttributes(Path source, Path target, BasicFileAttributes sourceAttributes) throws IOException {
+        Files.setLastModifiedTime(target, sourceAttributes.lastModifiedTime());
+
+        PosixFileAttributeView sourcePosix = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        PosixFileAttributeView targetPosix = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+
+        if ( nonNull(sourcePosix) && nonNull(targetPosix) ) {
+            targetPosix.setPermissions(sourcePosix.readAttributes().permissions());
+        }
+    }
+}
@@ -7,7 +7,6 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
-import java.nio.file.AccessDeniedException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
@@ -22,13 +21,14 @@ import java.util.stream.Stream;
 import org.slf4j.LoggerFactory;
 
 import diarsid.files.PathReentrantLock;
+import diarsid.filesystem.api.ChildPage;
+import diarsid.filesystem.api.ChildQuery;
 import diarsid.filesystem.api.Directory;
 import diarsid.filesystem.api.FSEntry;
 import diarsid.filesystem.api.File;
 import diarsid.filesystem.api.FileSystem;
 import diarsid.support.objects.references.Result;
 
-import static java.nio.file.Files.list;
 import static java.nio.file.StandardOpenOption.CREATE_NEW;
 import static java.nio.file.StandardOpenOption.READ;
 import static java.nio.file.StandardOpenOption.WRITE;
@@ -36,6 +36,8 @@ import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.stream.Collectors.toList;
 
+import static diarsid.filesystem.api.Diagnostics.Category.IO;
+import static diarsid.filesystem.api.Diagnostics.failure;
 import static diarsid.filesystem.api.FileSystem.getNameFrom;
 import static diarsid.filesystem.api.NoResultReason.FILE_CONTENT_CLASS_NOT_READABLE;
 import static diarsid.filesystem.api.NoResultReason.FILE_CREATION_COLLISION;
@@ -48,9 +50,15 @@ class LocalDirectory implements Directory, ChangeableFSEntry {
     private final Path path;
     private final String name;
     private final String fullName;
+    private volatile EntryAttributes attributes;
 
     LocalDirectory(Path path, FileSystem fileSystem) {
+        this(path, fileSystem, null);
+    }
+
+    LocalDirectory(Path path, FileSystem fileSystem, EntryAttributes attributes) {
         this.fileSystem = fileSystem;
+        this.attributes = attributes;
         if ( path.isAbsolute() ) {
             this.path = path;
         }
@@ -180,9 +188,7 @@ class LocalDirectory implements Directory, ChangeableFSEntry {
 
     @Override
     public long countChildren() {
-        try ( var stream = this.fileSystem.list(this) ) {
-            return stream.count();
-        }
+        return this.fileSystem.countChildren(this);
     }
 
     @Override
@@ -239,41 +245,17 @@ class LocalDirectory implements Directory, ChangeableFSEntry {
 
     @Override
     public void checkChildrenPresence(Consumer<Boolean> consumer) {
-        try (Stream<Path> pathsStream = list(this.path)) {
-            consumer.accept(pathsStream.count() > 0);
-        }
-        catch (AccessDeniedException denied) {
-            consumer.accept(false);
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-        }
+        consumer.accept(this.fileSystem.hasChildren(this));
     }
 
     @Override
     public void checkDirectoriesPresence(Consumer<Boolean> consumer) {
-        try (Stream<Path> pathsStream = list(this.path)) {
-            consumer.accept(pathsStream.anyMatch(this.fileSystem::isDirectory));
-        }
-        catch (AccessDeniedException denied) {
-            consumer.accept(false);
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-        }
+        consumer.accept(this.fileSystem.hasDirectories(this));
     }
 
     @Override
     public void checkFilesPresence(Consumer<Boolean> consumer) {
-        try (Stream<Path> pathsStream = list(this.path)) {
-            consumer.accept(pathsStream.anyMatch(this.fileSystem::isFile));
-        }
-        catch (AccessDeniedException denied) {
-            consumer.accept(false);
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-        }
+        consumer.accept(this.fileSystem.hasFiles(this));
     }
 
     @Override
@@ -350,6 +332,11 @@ class LocalDirectory implements Directory, ChangeableFSEntry {
         }
     }
 
+    @Override
+    public ChildPage streamChildren(ChildQuery query) {
+        return this.fileSystem.listPage(this, query);
+    }
+
     @Override
     public void host(FSEntry newEntry, Consumer<Boolean> callback) {
         boolean result = this.fileSystem.move(newEntry, this);
@@ -398,8 +385,34 @@ class LocalDirectory implements Directory, ChangeableFSEntry {
         return false;
     }
 
+    @Override
+    public void refresh() {
+        EntryAttributes oldAttributes = this.attributes;
+        if ( isNull(oldAttributes) ) {
+            return;
+        }
+
+        try {
+            this.attributes = oldAttributes.reread(this.path);
+        }
+        catch (IOException e) {
+            failure(IO, e);
+        }
+    }
+
+    @Override
+    public boolean isStale() {
+        EntryAttributes attributes = this.attributes;
+        return nonNull(attributes) && attributes.isStale();
+    }
+
     @Override
     public boolean isHidden() {
+        EntryAttributes attributes = this.attributes;
+        if ( nonNull(attributes) ) {
+            return attributes.isHidden();
+        }
+
         try {
             return Files.isHidden(this.path);
         }
@@ -554,6 +567,11 @@ class LocalDirectory implements Directory, ChangeableFSEntry {
         this.fileSystem.watch(this);
     }
 
+    @Override
+    public void watchTree(int depthLimit) {
+        this.fileSystem.watchTree(this, depthLimit);
+    }
+
     @Override
     public int compareTo(FSEntry otherFSEntry) {
         if ( otherFSEntry.isFile() ) {
@@ -22,8 +22,11 @@ import diarsid.filesystem.api.FileSystem;
 import diarsid.support.objects.references.Result;
 
 import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
+import static diarsid.filesystem.api.Diagnostics.Category.IO;
+import static diarsid.filesystem.api.Diagnostics.failure;
 import static diarsid.filesystem.api.NoResultReason.PATH_NOT_EXISTS;
 
 class LocalFile implements File, ChangeableFSEntry {
@@ -32,8 +35,13 @@ class LocalFile implements File, ChangeableFSEntry {
 
     private final Path path;
     private final String name;
+    private volatile EntryAttributes attributes;
 
     LocalFile(Path path, FileSystem fileSystem) {
+        this(path, fileSystem, null);
+    }
+
+    LocalFile(Path path, FileSystem fileSystem, EntryAttributes attributes) {
         if ( path.isAbsolute() ) {
             this.path = path;
         }
@@ -42,7 +50,7 @@ class LocalFile implements File, ChangeableFSEntry {
         }
         this.name = this.path.getFileName().toString();
         this.fileSystem = fileSystem;
-        fileSystem.isFile(this.path);
+        this.attributes = attributes;
     }
 
     @Override
@@ -96,8 +104,34 @@ class LocalFile implements File, ChangeableFSEntry {
         return true;
     }
 
+    @Override
+    public void refresh() {
+        EntryAttributes oldAttributes = this.attributes;
+        if ( isNull(oldAttributes) ) {
+            return;
+        }
+
+        try {
+            this.attributes = oldAttributes.reread(this.path);
+        }
+        catch (IOException e) {
+            failure(IO, e);
+        }
+    }
+
+    @Override
+    public boolean isStale() {
+        EntryAttributes attributes = this.attributes;
+        return nonNull(attributes) && attributes.isStale();
+    }
+
     @Override
     public boolean isHidden() {
+        EntryAttributes attributes = this.attributes;
+        if ( nonNull(attributes) ) {
+            return attributes.isHidden();
+        }
+
         try {
             return Files.isHidden(this.path);
         }
@@ -139,6 +173,11 @@ class LocalFile implements File, ChangeableFSEntry {
 
     @Override
     public long size() {
+        EntryAttributes attributes = this.attributes;
+        if ( nonNull(attributes) ) {
+            return attributes.size();
+        }
+
         return this.fileSystem.sizeOf(this);
     }
 
@@ -219,21 +258,31 @@ class LocalFile implements File, ChangeableFSEntry {
 
     @Override
     public LocalDateTime createdAt() {
-        return this.fileSystem.creationTimeOf(this).orThrow();
+        return this.creationTime().orThrow();
     }
 
     @Override
     public LocalDateTime actualAt() {
-        return this.fileSystem.modificationTimeOf(this).orThrow();
+        return this.modificationTime().orThrow();
     }
 
     @Override
     public Result<LocalDateTime> creationTime() {
+        EntryAttributes attributes = this.attributes;
+        if ( nonNull(attributes) ) {
+            return Result.completed(attributes.creationTime());
+        }
+
         return this.fileSystem.creationTimeOf(this);
     }
 
     @Override
     public Result<LocalDateTime> modificationTime() {
+        EntryAttributes attributes = this.attributes;
+        if ( nonNull(attributes) ) {
+            return Result.completed(attributes.modificationTime());
+        }
+
         return this.fileSystem.modificationTimeOf(this);
     }
 }
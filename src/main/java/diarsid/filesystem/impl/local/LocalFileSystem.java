@@ -3,29 +3,42 @@ package diarsid.filesystem.impl.local;
 import java.awt.Desktop;
 import java.io.IOException;
 import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.attribute.FileTime;
-import java.time.Instant;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import diarsid.files.Extensions;
-import diarsid.files.LocalDirectoryWatcher;
+import diarsid.filesystem.api.BatchResult;
+import diarsid.filesystem.api.ChildPage;
+import diarsid.filesystem.api.ChildQuery;
 import diarsid.filesystem.api.Directory;
 import diarsid.filesystem.api.FSEntry;
 import diarsid.filesystem.api.File;
 import diarsid.filesystem.api.FileSystem;
+import diarsid.filesystem.api.FileSystemSettings;
 import diarsid.filesystem.api.FileSystemType;
+import diarsid.filesystem.api.TreeSize;
+import diarsid.filesystem.api.TreeStats;
 import diarsid.filesystem.api.ignoring.Ignores;
 import diarsid.support.concurrency.threads.NamedThreadSource;
 import diarsid.support.objects.references.Result;
@@ -33,21 +46,31 @@ import diarsid.support.objects.references.Result;
 import static java.awt.Desktop.getDesktop;
 import static java.lang.System.currentTimeMillis;
 import static java.lang.System.getProperty;
-import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
 import static java.util.Collections.reverse;
 import static java.util.Comparator.reverseOrder;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.stream.Collectors.toList;
 
+import static diarsid.filesystem.api.Diagnostics.Category.IO;
+import static diarsid.filesystem.api.Diagnostics.Category.MOVE;
+import static diarsid.filesystem.api.Diagnostics.Category.REMOVE;
+import static diarsid.filesystem.api.Diagnostics.Category.RENAME;
+import static diarsid.filesystem.api.Diagnostics.Category.WATCH;
+import static diarsid.filesystem.api.Diagnostics.event;
+import static diarsid.filesystem.api.Diagnostics.eventWithOrigin;
+import static diarsid.filesystem.api.Diagnostics.failure;
+import static diarsid.filesystem.api.FileSystemSettings.AttributesMode.SNAPSHOT;
 import static diarsid.filesystem.api.FileSystemType.LOCAL;
 import static diarsid.filesystem.api.NoResultReason.PATH_IS_NOT_DIRECTORY;
 import static diarsid.filesystem.api.NoResultReason.PATH_IS_NOT_FILE;
 import static diarsid.filesystem.api.NoResultReason.PATH_NOT_EXISTS;
-import static diarsid.support.concurrency.ThreadUtils.currentThreadTrack;
 
 public class LocalFileSystem implements FileSystem {
 
@@ -64,25 +87,19 @@ public class LocalFileSystem implements FileSystem {
             this.newPath = to;
         }
 
-        List<PathChange> findChangesTo(List<Path> oldPaths) {
-            List<PathChange> changes = oldPaths
+        List<PathChange> findChangesTo(List<TreeWalk.Entry> oldEntries) {
+            List<PathChange> changes = oldEntries
                     .stream()
                     .map(this::findChangeTo)
-                    .filter(Objects::nonNull)
                     .collect(toList());
 
             return changes;
         }
 
-        private PathChange findChangeTo(Path removedPath) {
-            Path removedPathRelative = this.oldPath.relativize(removedPath);
-            try {
-                Path createdPath = this.newPath.resolve(removedPathRelative).toRealPath();
-                return new PathChange(removedPath, createdPath, removedPathRelative);
-            } catch (IOException e) {
-                handle(e);
-                return null;
-            }
+        private PathChange findChangeTo(TreeWalk.Entry removedEntry) {
+            Path removedPathRelative = this.oldPath.relativize(removedEntry.path());
+            Path createdPath = this.newPath.resolve(removedPathRelative);
+            return new PathChange(removedEntry.path(), createdPath, removedPathRelative, removedEntry.isDirectory());
         }
 
         void clear() {
@@ -91,6 +108,67 @@ public class LocalFileSystem implements FileSystem {
         }
     }
 
+    private class SubtreeRegistration extends RecursiveAction {
+
+        private final Path directory;
+        private final int depth;
+        private final ConcurrentLinkedQueue<FSEntry> foundEntries;
+
+        SubtreeRegistration(Path directory, int depth, ConcurrentLinkedQueue<FSEntry> foundEntries) {
+            this.directory = directory;
+            this.depth = depth;
+            this.foundEntries = foundEntries;
+        }
+
+        @Override
+        protected void compute() {
+            LocalWatchEngine.Registration registration;
+            synchronized ( watchersByPath ) {
+                registration = watchIfAbsent(this.directory, this.depth);
+            }
+
+            DirectorySnapshot snapshot;
+            try {
+                snapshot = DirectorySnapshot.of(this.directory);
+            }
+            catch (IOException e) {
+                handle(e);
+                return;
+            }
+
+            if ( nonNull(registration) ) {
+                registration.snapshotIfAbsent(snapshot);
+            }
+
+            List<SubtreeRegistration> subdirectories = new ArrayList<>();
+
+            snapshot.forEachChild((child, isDirectory) -> {
+                /* ignored subtree is pruned before any entry of it is created */
+                if ( ignores.isIgnored(child, isDirectory) ) {
+                    return;
+                }
+
+                FSEntry entry;
+                if ( isDirectory ) {
+                    entry = toLocalDirectory(child);
+                }
+                else {
+                    entry = toLocalFile(child);
+                }
+
+                if ( nonNull(this.foundEntries) ) {
+                    this.foundEntries.add(entry);
+                }
+
+                if ( isDirectory && this.depth > 0 ) {
+                    subdirectories.add(new SubtreeRegistration(child, this.depth - 1, this.foundEntries));
+                }
+            });
+
+            invokeAll(subdirectories);
+        }
+    }
+
     static class PathChange {
 
         private final Path oldPath;
@@ -98,11 +176,11 @@ public class LocalFileSystem implements FileSystem {
         private final Path relativePath;
         private final boolean isDirectory;
 
-        PathChange(Path oldPath, Path newPath, Path relativePath) {
+        PathChange(Path oldPath, Path newPath, Path relativePath, boolean isDirectory) {
             this.oldPath = oldPath;
             this.newPath = newPath;
             this.relativePath = relativePath;
-            this.isDirectory = Files.exists(newPath) && Files.isDirectory(newPath);
+            this.isDirectory = isDirectory;
         }
 
         public Path oldPath() {
@@ -133,36 +211,140 @@ public class LocalFileSystem implements FileSystem {
     }
 
     private final Ignores ignores;
-    private final HashMap<Path, LocalDirectoryWatcher> watchersByPath;
+    private final TreeMap<Path, LocalWatchEngine.Registration> watchersByPath;
+    private final LocalWatchEngine watchEngine;
     private final LocalMachineDirectory localMachineDirectory;
     private final Extensions extensions;
     private final Desktop desktop;
     private final Predicate<FSEntry> notIgnored;
     private final ChangesImpl changes;
+    private final FileSystemSettings settings;
+    private final FileTransfer fileTransfer;
+    private final ParallelCopy parallelCopy;
+    private final ParallelRemove parallelRemove;
+    private final DirectoryMove directoryMove;
+    private final BatchExecutor batchExecutor;
+    private final AsyncIO asyncIO;
+    private final DirectoryListing directoryListing;
+    private final TreeTotals treeTotals;
+    private final TreeSizes treeSizes;
+    private final ExtensionStats extensionStats;
+    private final EntryAttributes.View attributesView;
+    private final long attributesMaxAgeNanos;
+    private final EntriesCache entriesCache;
+    private final RealPaths realPaths;
 
     public LocalFileSystem(
             Ignores ignores,
             NamedThreadSource namedThreadSource,
             java.nio.file.FileSystem fileSystem) {
+        this(ignores, namedThreadSource, fileSystem, FileSystemSettings.DEFAULT);
+    }
+
+    public LocalFileSystem(
+            Ignores ignores,
+            NamedThreadSource namedThreadSource,
+            java.nio.file.FileSystem fileSystem,
+            FileSystemSettings settings) {
+        this.settings = settings;
+        this.fileTransfer = new FileTransfer(settings.transfer());
+        this.parallelCopy = new ParallelCopy(settings.copyParallelism(), this.fileTransfer);
+        this.parallelRemove = new ParallelRemove(settings.removeParallelism(), settings.removedBatchSize());
+        this.attributesView = EntryAttributes.View.supportedBy(fileSystem);
+        this.attributesMaxAgeNanos = settings.attributesMaxAge().toNanos();
+        this.entriesCache = new EntriesCache(settings.entriesCacheSize());
+        this.realPaths = new RealPaths(settings.realPathsCacheSize());
+        this.directoryMove = new DirectoryMove(this.parallelCopy, this.parallelRemove);
+        this.batchExecutor = new BatchExecutor(
+                namedThreadSource.newNamedCachedThreadPool("filesystem.batch"),
+                settings.batchParallelism());
+        this.asyncIO = new AsyncIO(namedThreadSource);
         this.ignores = ignores;
-        this.watchersByPath = new HashMap<>();
+        this.directoryListing = new DirectoryListing(ignores::isIgnored);
+        this.watchersByPath = new TreeMap<>(Subtrees.ORDER);
+        this.watchEngine = new LocalWatchEngine(fileSystem, this::acceptWatchEvent, this::dropInvalidRegistration);
         this.localMachineDirectory = new LocalMachineDirectory(this, fileSystem.getRootDirectories());
         this.extensions = new Extensions();
+        this.treeTotals = new TreeTotals(
+                settings.treeSizeParallelism(), this::isWatched, ignores::isIgnored, this.extensions);
+        this.treeSizes = new TreeSizes(this.treeTotals);
+        this.extensionStats = new ExtensionStats(this.treeTotals);
         this.desktop = getDesktop();
         this.notIgnored = this.ignores::isNotIgnored;
-        this.changes = new ChangesImpl(namedThreadSource);
+        this.changes = new ChangesImpl(namedThreadSource, settings.changesDispatch());
+
+        this.changes.listenInternallyForEntriesRemoved(this::removeWatchers);
+        this.changes.listenInternallyForEntriesAdded(this::createWatchersForEntries);
+
+        if ( this.entriesCache.isEnabled() ) {
+            this.changes.listenInternallyForEntriesRemoved(this.entriesCache::invalidate);
+            this.changes.listenInternallyForEntriesAdded(this.entriesCache::replace);
+        }
+
+        this.changes.listenInternallyForEntriesRemoved(this.treeTotals::invalidate);
+        this.changes.listenInternallyForEntriesAdded(this.treeTotals::invalidateEntries);
+
+        if ( this.realPaths.isEnabled() ) {
+            this.changes.listenInternallyForEntriesRemoved(this.realPaths::invalidate);
+        }
+
+        this.ignores.listenForChanges(this::acceptIgnoringChange);
+    }
 
-        this.changes.listenForEntriesRemoved(this::removeWatchers);
-        this.changes.listenForEntriesAdded(this::createWatchersForEntries);
+    private boolean isWatched(Path directory) {
+        synchronized ( this.watchersByPath ) {
+            return this.watchersByPath.containsKey(directory);
+        }
+    }
+
+    /* directory is not watched anymore, nothing will invalidate what is cached about it */
+    private void dropInvalidRegistration(LocalWatchEngine.Registration registration) {
+        synchronized ( this.watchersByPath ) {
+            this.watchersByPath.remove(registration.path(), registration);
+        }
+
+        this.treeTotals.invalidate(registration.path());
+    }
+
+    /* sizes and stats count only not ignored entries, ignored directories are not watched */
+    private void acceptIgnoringChange(List<Path> changed) {
+        if ( changed.isEmpty() ) {
+            this.treeTotals.invalidateAll();
+
+            synchronized ( this.watchersByPath ) {
+                var registrations = this.watchersByPath.entrySet().iterator();
+                Map.Entry<Path, LocalWatchEngine.Registration> registration;
+                while ( registrations.hasNext() ) {
+                    registration = registrations.next();
+                    if ( this.ignores.isIgnored(registration.getKey(), true) ) {
+                        registrations.remove();
+                        this.watchEngine.unregister(registration.getValue());
+                    }
+                }
+            }
+        }
+        else {
+            this.treeTotals.invalidate(changed);
+
+            for ( Path path : changed ) {
+                if ( this.ignores.isIgnored(path) ) {
+                    synchronized ( this.watchersByPath ) {
+                        Subtrees
+                                .removeSubtree(this.watchersByPath, path)
+                                .forEach(this.watchEngine::unregister);
+                    }
+                }
+            }
+        }
     }
 
     private void removeWatchers(List<Path> paths) {
         synchronized ( this.watchersByPath ) {
             for ( Path path : paths ) {
-                LocalDirectoryWatcher localDirectoryWatcher = this.watchersByPath.remove(path);
+                LocalWatchEngine.Registration registration = this.watchersByPath.remove(path);
 
-                if ( nonNull(localDirectoryWatcher) ) {
-                    localDirectoryWatcher.destroy();
+                if ( nonNull(registration) ) {
+                    this.watchEngine.unregister(registration);
                 }
             }
         }
@@ -175,9 +357,14 @@ public class LocalFileSystem implements FileSystem {
 
     @Override
     public Result<FSEntry> toFSEntry(Path path) {
+        FSEntry cached = this.entriesCache.get(path);
+        if ( nonNull(cached) ) {
+            return Result.completed(cached);
+        }
+
         if ( Files.exists(path) ) {
             try {
-                Path realPath = path.toRealPath();
+                Path realPath = this.realPaths.realPathOf(path);
                 return Result.completed(this.toLocalFSEntry(realPath));
             }
             catch (IOException e) {
@@ -190,6 +377,11 @@ public class LocalFileSystem implements FileSystem {
     }
 
     FSEntry toLocalFSEntry(Path path) {
+        FSEntry cached = this.entriesCache.get(path);
+        if ( nonNull(cached) ) {
+            return cached;
+        }
+
         if (Files.isDirectory(path)) {
             return this.toLocalDirectory(path);
         }
@@ -211,10 +403,20 @@ public class LocalFileSystem implements FileSystem {
 
     @Override
     public Result<Directory> toDirectory(Path path) {
+        FSEntry cached = this.entriesCache.get(path);
+        if ( nonNull(cached) ) {
+            if ( cached.isDirectory() ) {
+                return Result.completed(cached.asDirectory());
+            }
+            else {
+                return Result.empty(PATH_IS_NOT_DIRECTORY);
+            }
+        }
+
         if ( Files.exists(path) ) {
             if ( Files.isDirectory(path) ) {
                 try {
-                    Path realPath = path.toRealPath();
+                    Path realPath = this.realPaths.realPathOf(path);
                     return Result.completed(this.toLocalDirectory(realPath));
                 }
                 catch (IOException e) {
@@ -235,7 +437,7 @@ public class LocalFileSystem implements FileSystem {
         if ( Files.exists(path) ) {
             if ( Files.isDirectory(path) ) {
                 try {
-                    Path realPath = path.toRealPath();
+                    Path realPath = this.realPaths.realPathOf(path);
                     return Result.completed(this.toLocalDirectory(realPath));
                 }
                 catch (IOException e) {
@@ -258,16 +460,25 @@ public class LocalFileSystem implements FileSystem {
     }
 
     LocalDirectory toLocalDirectory(Path path) {
-        LocalDirectory localDirectory = new LocalDirectory(path, this);
-        return localDirectory;
+        return this.entriesCache.get(path, LocalDirectory.class, directoryPath -> new LocalDirectory(directoryPath, this));
     }
 
     @Override
     public Result<File> toFile(Path path) {
+        FSEntry cached = this.entriesCache.get(path);
+        if ( nonNull(cached) ) {
+            if ( cached.isFile() ) {
+                return Result.completed(cached.asFile());
+            }
+            else {
+                return Result.empty(PATH_IS_NOT_FILE);
+            }
+        }
+
         if ( Files.exists(path) ) {
             if ( ! Files.isDirectory(path) ) {
                 try {
-                    Path realPath = path.toRealPath();
+                    Path realPath = this.realPaths.realPathOf(path);
                     return Result.completed(this.toLocalFile(realPath));
                 }
                 catch (IOException e) {
@@ -288,7 +499,7 @@ public class LocalFileSystem implements FileSystem {
         if ( Files.exists(path) ) {
             if ( ! Files.isDirectory(path) ) {
                 try {
-                    Path realPath = path.toRealPath();
+                    Path realPath = this.realPaths.realPathOf(path);
                     return Result.completed(this.toLocalFile(realPath));
                 }
                 catch (IOException e) {
@@ -311,8 +522,7 @@ public class LocalFileSystem implements FileSystem {
     }
 
     LocalFile toLocalFile(Path path) {
-        LocalFile localFile = new LocalFile(path, this);
-        return localFile;
+        return this.entriesCache.get(path, LocalFile.class, filePath -> new LocalFile(filePath, this));
     }
 
     @Override
@@ -332,13 +542,17 @@ public class LocalFileSystem implements FileSystem {
 
     @Override
     public boolean copy(FSEntry whatToCopy, Directory whereToCopy) {
+        return this.copy(whatToCopy, whereToCopy, FileTransfer.Progress.NONE);
+    }
+
+    private boolean copy(FSEntry whatToCopy, Directory whereToCopy, FileTransfer.Progress progress) {
         boolean success;
 
         LocalDirectory directoryHost = (LocalDirectory) whereToCopy;
         if ( whatToCopy.isFile() ) {
             LocalFile file = (LocalFile) whatToCopy;
             try {
-                Files.copy(file.path(), directoryHost.path().resolve(file.name()));
+                this.fileTransfer.copy(file.path(), directoryHost.path().resolve(file.name()), progress);
                 success = true;
             }
             catch (IOException e) {
@@ -353,29 +567,17 @@ public class LocalFileSystem implements FileSystem {
                 return false;
             }
 
-            Path directoryToCopyParentPath = directoryToCopy.path().getParent();
+            if ( directoryToCopy.isIndirectParentOf(directoryHost) ) {
+                return false;
+            }
 
-            try {
-                List<Path> paths = Files
-                        .walk(directoryToCopy.path())
-                        .collect(toList());
-
-                Path subPath;
-                for (Path path : paths) {
-                    subPath = directoryToCopyParentPath.relativize(path);
-                    System.out.println(" copy ");
-                    System.out.println(" src : " + path.toString());
-                    System.out.println(" sub : " + subPath.toString());
-                    System.out.println(" trg : " + directoryHost.path().resolve(subPath).toString());
-                    Files.copy(path, directoryHost.path().resolve(subPath), COPY_ATTRIBUTES);
+            List<IOException> failures = this.parallelCopy.copy(
+                    directoryToCopy.path(),
+                    directoryHost.path().resolve(directoryToCopy.name()),
+                    progress);
 
-                }
-                success = true;
-            }
-            catch (IOException e) {
-                handle(e);
-                success = false;
-            }
+            failures.forEach(LocalFileSystem::handle);
+            success = failures.isEmpty();
         }
 
         return success;
@@ -383,6 +585,10 @@ public class LocalFileSystem implements FileSystem {
 
     @Override
     public boolean move(FSEntry whatToMove, Directory whereToMove) {
+        return this.move(whatToMove, whereToMove, FileTransfer.Progress.NONE);
+    }
+
+    private boolean move(FSEntry whatToMove, Directory whereToMove, FileTransfer.Progress progress) {
         boolean success;
 
         LocalDirectory directoryHost = (LocalDirectory) whereToMove;
@@ -394,6 +600,7 @@ public class LocalFileSystem implements FileSystem {
 
             boolean moved;
             try {
+                event(MOVE, () -> "[move] " + oldPath + " -> " + newPath);
                 Files.move(oldPath, newPath, REPLACE_EXISTING);
                 moved = true;
             }
@@ -408,7 +615,7 @@ public class LocalFileSystem implements FileSystem {
 
             if ( moved ) {
                 this.changes.removed(oldPath);
-                this.changes.added(this.toLocalFSEntry(newPath));
+                this.changes.added(this.toLocalFile(newPath));
             }
 
             success = moved;
@@ -424,54 +631,40 @@ public class LocalFileSystem implements FileSystem {
                 return false;
             }
 
-            try {
-                Path oldPath = directoryToMove.path();
-                Path newPath = directoryHost.path().resolve(directoryToMove.name());
-                System.out.println("[FS] [move] " + oldPath + " -> " + newPath);
-
-                List<Path> pathsToRemove = Files
-                        .walk(oldPath)
-                        .sorted(reverseOrder())
-                        .collect(toList());
-
-                this.removeWatchers(pathsToRemove);
+            Path oldPath = directoryToMove.path();
+            Path newPath = directoryHost.path().resolve(directoryToMove.name());
 
-                boolean moved;
-                try {
-                    Files.move(oldPath, newPath);
-                    moved = true;
-                }
-                catch (AccessDeniedException e) {
-                    handle(e);
-                    moved = false;
-                }
-                catch (IOException e) {
-                    handle(e);
-                    moved = false;
-                }
+            List<LocalWatchEngine.Registration> oldRegistrations;
+            synchronized ( this.watchersByPath ) {
+                oldRegistrations = Subtrees.removeSubtree(this.watchersByPath, oldPath);
+            }
+            oldRegistrations.forEach(this.watchEngine::unregister);
 
-                if ( moved ) {
-                    List<FSEntry> newFSEntries = Files
-                            .walk(newPath)
-                            .map(this::toLocalFSEntry)
-                            .sorted(reverseOrder())
-                            .collect(toList());
+            DirectoryMove.Moving moving;
+            try {
+                moving = this.directoryMove.move(oldPath, newPath, progress);
+            }
+            catch (IOException e) {
+                handle(e);
+                this.createWatchers(oldRegistrations.stream().map(LocalWatchEngine.Registration::path).collect(toList()));
+                return false;
+            }
 
-                    this.changes.removed(pathsToRemove);
-                    this.changes.added(newFSEntries);
+            moving.failures().forEach(LocalFileSystem::handle);
 
-                    success = true;
-                }
-                else {
-                    this.createWatchers(pathsToRemove);
-                    success = false;
-                }
+            if ( moving.isMoved() ) {
+                List<FSEntry> newFSEntries = moving.source().toFSEntriesUnder(newPath, this);
+                newFSEntries.sort(reverseOrder());
 
+                this.changes.removed(moving.removedSources());
+                this.changes.added(newFSEntries);
             }
-            catch (IOException e) {
-                handle(e);
-                success = false;
+
+            if ( ! moving.isComplete() ) {
+                this.createWatchers(moving.source().directories());
             }
+
+            success = moving.isComplete();
         }
 
         return success;
@@ -496,7 +689,7 @@ public class LocalFileSystem implements FileSystem {
 
             boolean renamed;
             try {
-                System.out.println("[FS] [rename] " + oldPath + " -> " + newPath);
+                event(RENAME, () -> "[rename] " + oldPath + " -> " + newPath);
                 Files.move(oldPath, newPath, REPLACE_EXISTING);
                 renamed = true;
             }
@@ -511,7 +704,7 @@ public class LocalFileSystem implements FileSystem {
 
             if ( renamed ) {
                 this.changes.removed(oldPath);
-                this.changes.added(this.toLocalFSEntry(newPath));
+                this.changes.added(this.toLocalFile(newPath));
             }
 
             success = renamed;
@@ -530,16 +723,17 @@ public class LocalFileSystem implements FileSystem {
                     newPath = parent.resolve(newName);
                 }
 
-                List<Path> pathsToRemove = Files
-                        .walk(oldPath)
-                        .sorted(reverseOrder())
-                        .collect(toList());
+                TreeWalk walk = TreeWalk.of(oldPath);
 
-                this.removeWatchers(pathsToRemove);
+                List<LocalWatchEngine.Registration> oldRegistrations;
+                synchronized ( this.watchersByPath ) {
+                    oldRegistrations = Subtrees.removeSubtree(this.watchersByPath, oldPath);
+                }
+                oldRegistrations.forEach(this.watchEngine::unregister);
 
                 boolean renamed;
                 try {
-                    System.out.println("[FS] [rename] " + oldPath + " -> " + newPath);
+                    event(RENAME, () -> "[rename] " + oldPath + " -> " + newPath);
                     Files.move(oldPath, newPath);
                     renamed = true;
                 }
@@ -548,24 +742,21 @@ public class LocalFileSystem implements FileSystem {
                     renamed = false;
                 }
                 catch (IOException e) {
-                    e.printStackTrace();
+                    handle(e);
                     renamed = false;
                 }
 
                 if ( renamed ) {
-                    List<FSEntry> newFSEntries = Files
-                            .walk(newPath)
-                            .map(this::toLocalFSEntry)
-                            .sorted(reverseOrder())
-                            .collect(toList());
+                    List<FSEntry> newFSEntries = walk.toFSEntriesUnder(newPath, this);
+                    newFSEntries.sort(reverseOrder());
 
-                    this.changes.removed(pathsToRemove);
+                    this.changes.removed(walk.pathsBottomUp());
                     this.changes.added(newFSEntries);
 
                     success = true;
                 }
                 else {
-                    this.createWatchers(pathsToRemove);
+                    this.createWatchers(walk.directories());
                     success = false;
                 }
 
@@ -579,63 +770,11 @@ public class LocalFileSystem implements FileSystem {
         return success;
     }
 
-//    private ChangeableFSEntry makeChangeToCachedPaths(PathChange pathChange) {
-//        if ( pathChange.isDirectory() ) {
-//            ChangeableFSEntry entry = this.entriesByPath.remove(pathChange.oldPath);
-//
-//            if ( nonNull(entry) ) {
-//                LocalDirectory directory = entry.asDirectory();
-//                directory.movedTo(pathChange.newPath);
-//                this.entriesByPath.put(pathChange.newPath, directory);
-//                createAndAddNewPathWatcher(directory);
-//                return directory;
-//            }
-//            else {
-//                return null;
-//            }
-//        }
-//        else {
-//            ChangeableFSEntry entry = this.entriesByPath.remove(pathChange.oldPath);
-//
-//            if ( nonNull(entry) ) {
-////                removePathWatcher(pathChange.oldPath);
-//                LocalFile file = entry.asFile();
-//                file.movedTo(pathChange.newPath);
-//                this.entriesByPath.put(pathChange.newPath, file);
-////                createAndAddNewPathWatcher(pathChange.newPath);
-//                return file;
-//            }
-//            else {
-//                return null;
-//            }
-//        }
-//    }
-
-//    private void remove(Path path) {
-//        System.out.println("[REMOVING PATH] " + path);
-//        ChangeableFSEntry entry = this.entriesByPath.remove(path);
-//        this.entriesByPath.remove(path);
-////        if ( nonNull(path) ) {
-////            try {
-////                Files.walk(path).forEach(visitedPath -> {
-////                    System.out.println("[REMOVING PATH] subpath " + path);
-////                    this.entriesByPath.remove(visitedPath);
-////                    removePathWatcher(visitedPath);
-////                });
-////            }
-////            catch (IOException e) {
-////                e.printStackTrace();
-////            }
-////        }
-//
-//    }
-
     @Override
     public boolean remove(FSEntry entry) {
         boolean success;
 
-        System.out.println("removing... " + entry.path());
-        currentThreadTrack("diarsid", (element) -> System.out.println("    " + element));
+        eventWithOrigin(REMOVE, () -> "[remove] " + entry.path());
         if ( entry.isFile() ) {
             LocalFile file = (LocalFile) entry;
             Path oldPath = file.path();
@@ -651,61 +790,43 @@ public class LocalFileSystem implements FileSystem {
         }
         else {
             LocalDirectory directoryToRemove = (LocalDirectory) entry;
-            Path pathToRemove = directoryToRemove.path();
+            success = this.removeDirectory(directoryToRemove.path());
+        }
 
-            try {
-                List<Path> pathsToRemove = Files
-                        .walk(pathToRemove)
-                        .sorted(reverseOrder())
-                        .collect(toList());
-
-                this.removeWatchers(pathsToRemove);
-
-                List<Path> removedPaths = new ArrayList<>();
-                for ( Path path : pathsToRemove ) {
-                    try {
-                        Files.delete(path);
-                        removedPaths.add(path);
-                    }
-                    catch (IOException e) {
-                        handle(e);
-                        break;
-                    }
-                }
+        return success;
+    }
 
-                boolean removed = removedPaths.size() == pathsToRemove.size();
+    private boolean removeDirectory(Path directory) {
+        synchronized ( this.watchersByPath ) {
+            Subtrees
+                    .removeSubtree(this.watchersByPath, directory)
+                    .forEach(this.watchEngine::unregister);
+        }
 
-                if ( removedPaths.size() > 0 ) {
-                    this.changes.removed(removedPaths);
-                }
+        ParallelRemove.Removal removal = this.parallelRemove.remove(directory, this.changes::removed);
 
-                if ( removed ) {
-                    success = true;
-                }
-                else {
-                    pathsToRemove.removeAll(removedPaths);
-                    this.createWatchers(pathsToRemove);
-                    success = false;
-                }
-            }
-            catch (IOException e) {
-                handle(e);
-                success = false;
-            }
+        if ( removal.isComplete() ) {
+            return true;
+        }
+        else {
+            removal.failures().values().forEach(LocalFileSystem::handle);
+            this.createWatchers(removal.remainingDirectories());
+            return false;
         }
-
-        return success;
     }
 
     @Override
     public boolean remove(Path path) {
         boolean success;
 
-        System.out.println("removing... " + path);
-        currentThreadTrack("diarsid", (element) -> System.out.println("    " + element));
+        eventWithOrigin(REMOVE, () -> "[remove] " + path);
 
-        if ( Files.exists(path) ) {
-            if ( Files.isRegularFile(path) ) {
+        /* link is removed itself, never its target */
+        if ( Files.exists(path, NOFOLLOW_LINKS) ) {
+            if ( Files.isDirectory(path, NOFOLLOW_LINKS) ) {
+                success = this.removeDirectory(path);
+            }
+            else {
                 try {
                     Files.delete(path);
                     this.changes.removed(path);
@@ -716,50 +837,6 @@ public class LocalFileSystem implements FileSystem {
                     success = false;
                 }
             }
-            else if ( Files.isDirectory(path) ) {
-                try {
-                    List<Path> pathsToRemove = Files
-                            .walk(path)
-                            .sorted(reverseOrder())
-                            .collect(toList());
-
-                    this.removeWatchers(pathsToRemove);
-
-                    List<Path> removedPaths = new ArrayList<>();
-                    for ( Path pathToRemove : pathsToRemove ) {
-                        try {
-                            Files.delete(pathToRemove);
-                            removedPaths.add(pathToRemove);
-                        }
-                        catch (IOException e) {
-                            handle(e);
-                            break;
-                        }
-                    }
-
-                    boolean removed = removedPaths.size() == pathsToRemove.size();
-
-                    if ( removedPaths.size() > 0 ) {
-                        this.changes.removed(removedPaths);
-                    }
-
-                    if ( removed ) {
-                        success = true;
-                    }
-                    else {
-                        pathsToRemove.removeAll(removedPaths);
-                        this.createWatchers(pathsToRemove);
-                        success = false;
-                    }
-                }
-                catch (IOException e) {
-                    handle(e);
-                    success = false;
-                }
-            }
-            else {
-                success = false;
-            }
         }
         else {
             success = true;
@@ -773,24 +850,7 @@ public class LocalFileSystem implements FileSystem {
             List<FSEntry> whatToMove,
             Directory parentDirectoryWhereToMove,
             ProgressTrackerBack<FSEntry> progressTracker) {
-        whatToMove.sort(FSEntry.compareByDepth);
-
-        progressTracker.begin(whatToMove);
-
-        boolean moved;
-        for (FSEntry entry : whatToMove) {
-            progressTracker.processing(entry);
-            moved = this.move(entry, parentDirectoryWhereToMove);
-            if ( moved ) {
-                progressTracker.processingDone(entry);
-            }
-            else {
-
-            }
-        }
-
-        progressTracker.completed();
-        return true;
+        return this.moveAllWithResult(whatToMove, parentDirectoryWhereToMove, progressTracker).isSuccessful();
     }
 
     @Override
@@ -798,34 +858,48 @@ public class LocalFileSystem implements FileSystem {
             List<FSEntry> whatToCopy,
             Directory parentDirectoryWhereToCopy,
             ProgressTrackerBack<FSEntry> progressTracker) {
-        whatToCopy.sort(FSEntry.compareByDepth);
-
-        progressTracker.begin(whatToCopy);
-
-        for (FSEntry entry : whatToCopy) {
-            progressTracker.processing(entry);
-            this.copy(entry, parentDirectoryWhereToCopy);
-            progressTracker.processingDone(entry);
-        }
-
-        progressTracker.completed();
-        return true;
+        return this.copyAllWithResult(whatToCopy, parentDirectoryWhereToCopy, progressTracker).isSuccessful();
     }
 
     @Override
     public boolean removeAll(List<FSEntry> whatToRemove, ProgressTrackerBack<FSEntry> progressTracker) {
-        whatToRemove.sort(FSEntry.compareByDepth);
+        return this.removeAllWithResult(whatToRemove, progressTracker).isSuccessful();
+    }
 
-        progressTracker.begin(whatToRemove);
+    @Override
+    public BatchResult moveAllWithResult(
+            List<FSEntry> whatToMove,
+            Directory parentDirectoryWhereToMove,
+            ProgressTrackerBack<FSEntry> progressTracker) {
+        return this.batchExecutor.execute(
+                whatToMove,
+                entry -> this.move(
+                        entry,
+                        parentDirectoryWhereToMove,
+                        (file, bytesDone, bytesAll) -> progressTracker.processingBytes(entry, file, bytesDone, bytesAll)),
+                progressTracker);
+    }
 
-        for (FSEntry entry : whatToRemove) {
-            progressTracker.processing(entry);
-            this.remove(entry);
-            progressTracker.processingDone(entry);
-        }
+    @Override
+    public BatchResult copyAllWithResult(
+            List<FSEntry> whatToCopy,
+            Directory parentDirectoryWhereToCopy,
+            ProgressTrackerBack<FSEntry> progressTracker) {
+        return this.batchExecutor.execute(
+                whatToCopy,
+                entry -> this.copy(
+                        entry,
+                        parentDirectoryWhereToCopy,
+                        (file, bytesDone, bytesAll) -> progressTracker.processingBytes(entry, file, bytesDone, bytesAll)),
+                progressTracker);
+    }
 
-        progressTracker.completed();
-        return true;
+    @Override
+    public BatchResult removeAllWithResult(List<FSEntry> whatToRemove, ProgressTrackerBack<FSEntry> progressTracker) {
+        return this.batchExecutor.execute(
+                whatToRemove,
+                this::remove,
+                progressTracker);
     }
 
     @Override
@@ -889,6 +963,11 @@ public class LocalFileSystem implements FileSystem {
     @Override
     public Stream<FSEntry> list(Directory directory) {
         LocalDirectory localDirectory = (LocalDirectory) directory;
+
+        if ( this.settings.attributesMode() == SNAPSHOT ) {
+            return this.listWithAttributes(localDirectory.path());
+        }
+
         try {
              return Files
                      .list(localDirectory.path())
@@ -905,6 +984,137 @@ public class LocalFileSystem implements FileSystem {
         }
     }
 
+    private Stream<FSEntry> listWithAttributes(Path directory) {
+        List<FSEntry> entries = new ArrayList<>();
+
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            FSEntry entry;
+            for ( Path child : children ) {
+                entry = this.toListedEntry(child);
+                if ( nonNull(entry) ) {
+                    entries.add(entry);
+                }
+            }
+        }
+        catch (IOException e) {
+            handle(e);
+        }
+
+        return entries.stream();
+    }
+
+    @Override
+    public ChildPage listPage(Directory directory, ChildQuery query) {
+        LocalDirectory localDirectory = (LocalDirectory) directory;
+        ChildPaging paging = new ChildPaging(query);
+
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(localDirectory.path())) {
+            FSEntry entry;
+            for ( Path child : children ) {
+                if ( Thread.currentThread().isInterrupted() ) {
+                    break;
+                }
+                if ( paging.isSkippingPaths() ) {
+                    if ( ! this.ignores.isIgnored(child) ) {
+                        paging.skipPath();
+                    }
+                    continue;
+                }
+                entry = this.toListedEntry(child);
+                if ( nonNull(entry) && ! paging.accept(entry) ) {
+                    break;
+                }
+            }
+        }
+        catch (DirectoryIteratorException e) {
+            handle(e.getCause());
+        }
+        catch (IOException e) {
+            handle(e);
+        }
+
+        return paging.page();
+    }
+
+    @Override
+    public boolean hasChildren(Directory directory) {
+        return this.hasAny(directory, DirectoryListing.Kind.ANY);
+    }
+
+    @Override
+    public boolean hasDirectories(Directory directory) {
+        return this.hasAny(directory, DirectoryListing.Kind.DIRECTORIES);
+    }
+
+    @Override
+    public boolean hasFiles(Directory directory) {
+        return this.hasAny(directory, DirectoryListing.Kind.FILES);
+    }
+
+    private boolean hasAny(Directory directory, DirectoryListing.Kind kind) {
+        try {
+            return this.directoryListing.hasAny(directory.path(), kind);
+        }
+        catch (AccessDeniedException denied) {
+            return false;
+        }
+        catch (IOException e) {
+            handle(e);
+            return false;
+        }
+    }
+
+    @Override
+    public long countChildren(Directory directory) {
+        try {
+            return this.directoryListing.count(directory.path());
+        }
+        catch (AccessDeniedException denied) {
+            return 0;
+        }
+        catch (IOException e) {
+            handle(e);
+            return 0;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> async(Callable<T> operation) {
+        return this.asyncIO.supply(operation);
+    }
+
+    /* null if entry is ignored or has disappeared while being listed */
+    private FSEntry toListedEntry(Path child) throws IOException {
+        FSEntry entry;
+
+        if ( this.settings.attributesMode() == SNAPSHOT ) {
+            EntryAttributes attributes;
+            try {
+                attributes = EntryAttributes.read(child, this.attributesView, this.attributesMaxAgeNanos);
+            }
+            catch (NoSuchFileException e) {
+                return null;
+            }
+
+            if ( attributes.isDirectory() ) {
+                entry = new LocalDirectory(child, this, attributes);
+            }
+            else {
+                entry = new LocalFile(child, this, attributes);
+            }
+        }
+        else {
+            entry = this.toLocalFSEntry(child);
+        }
+
+        if ( this.notIgnored.test(entry) ) {
+            return entry;
+        }
+        else {
+            return null;
+        }
+    }
+
     @Override
     public Result<Directory> parentOf(FSEntry fsEntry) {
         Path parentPath = fsEntry.path().getParent();
@@ -980,6 +1190,18 @@ public class LocalFileSystem implements FileSystem {
         return size;
     }
 
+    @Override
+    public TreeSize treeSizeOf(Directory directory) {
+        eventWithOrigin(IO, () -> "[tree size] " + directory.path());
+        return this.treeSizes.sizeOf(directory.path());
+    }
+
+    @Override
+    public <K> TreeStats<K> statsOf(Directory directory, TreeStats.GroupBy<K> groupBy) {
+        eventWithOrigin(IO, () -> "[tree stats] " + directory.path());
+        return this.extensionStats.statsOf(directory.path(), groupBy);
+    }
+
     @Override
     public Extensions extensions() {
         return this.extensions;
@@ -1008,17 +1230,49 @@ public class LocalFileSystem implements FileSystem {
 
     @Override
     public void watch(Directory directory) {
+        LocalWatchEngine.Registration registration;
         synchronized ( this.watchersByPath ) {
-            this.createAndPutNewWatcherIfAbsent(directory.path());
+            registration = this.createAndPutNewWatcherIfAbsent(directory.path());
+        }
+
+        if ( nonNull(registration) ) {
+            this.snapshotIfAbsent(registration);
         }
     }
 
+    @Override
+    public void watchTree(Directory directory, int depthLimit) {
+        if ( this.isMachine(directory) ) {
+            return;
+        }
+
+        if ( depthLimit < 0 ) {
+            throw new IllegalArgumentException("Depth limit cannot be negative!");
+        }
+
+        if ( this.ignores.isIgnored(directory) ) {
+            return;
+        }
+
+        ForkJoinPool.commonPool().invoke(new SubtreeRegistration(directory.path(), depthLimit, null));
+    }
+
+    /* nothing invalidates cached totals after watching is stopped */
+    @Override
+    public void destroy() {
+        synchronized ( this.watchersByPath ) {
+            this.watchersByPath.clear();
+            this.watchEngine.destroy();
+        }
+
+        this.treeTotals.invalidateAll();
+    }
+
     @Override
     public Result<LocalDateTime> creationTimeOf(Path path) {
         try {
-            Object attribute = Files.getAttribute(path, "creationTime");
-            Instant instant = ((FileTime) attribute).toInstant();
-            return Result.completed(LocalDateTime.ofInstant(instant, ZoneId.systemDefault()));
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return Result.completed(EntryAttributes.toLocalDateTime(attributes.creationTime()));
         }
         catch (IOException e) {
             return Result.empty(e);
@@ -1028,9 +1282,8 @@ public class LocalFileSystem implements FileSystem {
     @Override
     public Result<LocalDateTime> modificationTimeOf(Path path) {
         try {
-            Object attribute = Files.getAttribute(path, "lastModifiedTime");
-            Instant instant = ((FileTime) attribute).toInstant();
-            return Result.completed(LocalDateTime.ofInstant(instant, ZoneId.systemDefault()));
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return Result.completed(EntryAttributes.toLocalDateTime(attributes.lastModifiedTime()));
         }
         catch (IOException e) {
             return Result.empty(e);
@@ -1038,68 +1291,227 @@ public class LocalFileSystem implements FileSystem {
     }
 
     private void createWatchers(List<Path> paths) {
+        List<LocalWatchEngine.Registration> registrations;
         synchronized ( this.watchersByPath ) {
-            paths.stream()
+            registrations = paths.stream()
                     .filter(Files::isDirectory)
-                    .forEach(this::createAndPutNewWatcherIfAbsent);
+                    .map(this::createAndPutNewWatcherIfAbsent)
+                    .filter(Objects::nonNull)
+                    .collect(toList());
         }
+        registrations.forEach(this::snapshotIfAbsent);
     }
 
     private void createWatchersForEntries(List<FSEntry> entries) {
+        List<LocalWatchEngine.Registration> registrations;
         synchronized ( this.watchersByPath ) {
-            entries.stream()
+            registrations = entries.stream()
                     .filter(FSEntry::isDirectory)
                     .map(FSEntry::path)
-                    .forEach(this::createAndPutNewWatcherIfAbsent);
+                    .map(this::createAndPutNewWatcherIfAbsent)
+                    .filter(Objects::nonNull)
+                    .collect(toList());
         }
+        registrations.forEach(this::snapshotIfAbsent);
     }
 
-    private void createAndPutNewWatcherIfAbsent(Path path) {
+    private LocalWatchEngine.Registration createAndPutNewWatcherIfAbsent(Path path) {
         if ( ! Files.exists(path) ) {
-            return;
+            return null;
         }
 
         if ( ! Files.isDirectory(path) ) {
+            return null;
+        }
+
+        return this.watchIfAbsent(path, LocalWatchEngine.Registration.NOT_SUBTREE);
+    }
+
+    private LocalWatchEngine.Registration watchIfAbsent(Path directory, int subtreeDepth) {
+        LocalWatchEngine.Registration registration = this.watchersByPath.get(directory);
+
+        if ( nonNull(registration) ) {
+            registration.deepenSubtreeTo(subtreeDepth);
+            return registration;
+        }
+
+        try {
+            registration = this.watchEngine.register(directory);
+            registration.deepenSubtreeTo(subtreeDepth);
+            this.watchersByPath.put(directory, registration);
+            return registration;
+        }
+        catch (IOException e) {
+            handle(e);
+            return null;
+        }
+    }
+
+    private void snapshotIfAbsent(LocalWatchEngine.Registration registration) {
+        if ( nonNull(registration.snapshot()) ) {
             return;
         }
 
-        this.watchersByPath.computeIfAbsent(path, this::createNewWatcher);
+        try {
+            registration.snapshotIfAbsent(DirectorySnapshot.of(registration.path()));
+        }
+        catch (IOException e) {
+            handle(e);
+        }
     }
 
-    private LocalDirectoryWatcher createNewWatcher(Path path) {
-        LocalDirectoryWatcher watcher = new LocalDirectoryWatcher(
-                path,
-                (eventKind, pathOnChange) -> {
-                    if ( eventKind.equals(ENTRY_DELETE) ) {
-                        System.out.println("[WATCH]" + pathOnChange.toString() + " " + eventKind);
-                        this.changes.removed(pathOnChange);
-                    }
-                    else if ( eventKind.equals(ENTRY_CREATE) ) {
-                        System.out.println("[WATCH]" + pathOnChange.toString() + " " + eventKind);
-                        this.toFSEntry(pathOnChange).ifPresent(this.changes::added);
-                    }
-                },
-                LocalDirectoryWatcher.CallbackSynchronization.PER_JVM);
+    /*
+     * OS has lost events of this directory, so the difference between its last known
+     * snapshot and its actual content is emitted as synthetic changes.
+     */
+    private void resynchronize(Path directory) {
+        LocalWatchEngine.Registration registration;
+        synchronized ( this.watchersByPath ) {
+            registration = this.watchersByPath.get(directory);
+        }
+
+        if ( isNull(registration) ) {
+            return;
+        }
+
+        DirectorySnapshot actualSnapshot;
+        try {
+            actualSnapshot = DirectorySnapshot.of(directory);
+        }
+        catch (IOException e) {
+            handle(e);
+            return;
+        }
+
+        DirectorySnapshot lastSnapshot = registration.snapshot();
+
+        if ( isNull(lastSnapshot) ) {
+            registration.snapshotIfAbsent(actualSnapshot);
+            return;
+        }
+
+        DirectorySnapshot.Difference difference = lastSnapshot.takeStateOf(actualSnapshot);
 
-        watcher.startWork();
+        if ( difference.isEmpty() ) {
+            return;
+        }
 
-        return watcher;
+        if ( ! difference.removed().isEmpty() ) {
+            difference.removed().forEach(this::removeWatchersOfSubtree);
+            this.changes.removed(difference.removed());
+        }
+
+        List<FSEntry> addedEntries = new ArrayList<>();
+        for ( Path file : difference.addedFiles() ) {
+            if ( ! this.ignores.isIgnored(file, false) ) {
+                addedEntries.add(this.toLocalFile(file));
+            }
+        }
+        for ( Path addedDirectory : difference.addedDirectories() ) {
+            if ( ! this.ignores.isIgnored(addedDirectory, true) ) {
+                addedEntries.add(this.toLocalDirectory(addedDirectory));
+            }
+        }
+
+        int subtreeDepth = registration.subtreeDepth();
+        if ( subtreeDepth > 0 ) {
+            ConcurrentLinkedQueue<FSEntry> foundEntries = new ConcurrentLinkedQueue<>();
+            List<SubtreeRegistration> subtrees = addedEntries
+                    .stream()
+                    .filter(FSEntry::isDirectory)
+                    .map(addedDirectory -> new SubtreeRegistration(addedDirectory.path(), subtreeDepth - 1, foundEntries))
+                    .collect(toList());
+            subtrees.forEach(ForkJoinPool.commonPool()::invoke);
+            addedEntries.addAll(foundEntries);
+        }
+
+        if ( ! addedEntries.isEmpty() ) {
+            this.changes.added(addedEntries);
+        }
     }
 
-    private static void handle(IOException e) {
-        printStackTraceFor(e);
+    private void removeWatchersOfSubtree(Path root) {
+        synchronized ( this.watchersByPath ) {
+            if ( ! this.watchersByPath.containsKey(root) ) {
+                return;
+            }
+
+            Subtrees
+                    .removeSubtree(this.watchersByPath, root)
+                    .forEach(this.watchEngine::unregister);
+        }
     }
 
-    private static void handle(AccessDeniedException e) {
-        printStackTraceFor(e);
+    private int subtreeDepthOfParent(Path path) {
+        Path parent = path.getParent();
+
+        if ( isNull(parent) ) {
+            return LocalWatchEngine.Registration.NOT_SUBTREE;
+        }
+
+        synchronized ( this.watchersByPath ) {
+            LocalWatchEngine.Registration parentRegistration = this.watchersByPath.get(parent);
+
+            if ( isNull(parentRegistration) ) {
+                return LocalWatchEngine.Registration.NOT_SUBTREE;
+            }
+
+            return parentRegistration.subtreeDepth();
+        }
     }
 
-    private static void printStackTraceFor(IOException e) {
-        System.out.println(e);
-        for (StackTraceElement element : e.getStackTrace()) {
-            if (element.getClassName().startsWith("diarsid")) {
-                System.out.println("    " + element);
+    private void acceptWatchEvent(WatchEvent.Kind<?> eventKind, Path pathOnChange) {
+        if ( eventKind.equals(OVERFLOW) ) {
+            this.treeTotals.invalidate(pathOnChange);
+            this.resynchronize(pathOnChange);
+        }
+        else if ( eventKind.equals(ENTRY_MODIFY) ) {
+            this.treeTotals.invalidate(pathOnChange);
+        }
+        else if ( eventKind.equals(ENTRY_DELETE) ) {
+            event(WATCH, () -> "[watch] " + pathOnChange + " " + eventKind);
+            this.removeWatchersOfSubtree(pathOnChange);
+            this.changes.removed(pathOnChange);
+        }
+        else if ( eventKind.equals(ENTRY_CREATE) ) {
+            event(WATCH, () -> "[watch] " + pathOnChange + " " + eventKind);
+            if ( this.ignores.isIgnored(pathOnChange) ) {
+                return;
+            }
+
+            Result<FSEntry> createdEntry = this.toFSEntry(pathOnChange);
+
+            if ( createdEntry.isEmpty() ) {
+                return;
+            }
+
+            FSEntry created = createdEntry.get();
+            int subtreeDepth = this.subtreeDepthOfParent(pathOnChange);
+
+            if ( created.isDirectory() && subtreeDepth > 0 ) {
+                /*
+                 * Directory is registered right here, before listeners are notified, and then scanned
+                 * to catch up entries that have been created in it before its registration took effect.
+                 */
+                ConcurrentLinkedQueue<FSEntry> foundEntries = new ConcurrentLinkedQueue<>();
+                ForkJoinPool.commonPool().invoke(new SubtreeRegistration(created.path(), subtreeDepth - 1, foundEntries));
+
+                List<FSEntry> addedEntries = new ArrayList<>();
+                addedEntries.add(created);
+                addedEntries.addAll(foundEntries);
+                this.changes.added(addedEntries);
+            }
+            else {
+                this.changes.added(created);
             }
         }
     }
+
+    private static void handle(IOException e) {
+        failure(IO, e);
+    }
+
+    private static void handle(AccessDeniedException e) {
+        failure(IO, e);
+    }
 }
@@ -10,6 +10,8 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.function.Consumer;
 
+import diarsid.filesystem.api.ChildPage;
+import diarsid.filesystem.api.ChildQuery;
 import diarsid.filesystem.api.Directory;
 import diarsid.filesystem.api.FSEntry;
 import diarsid.filesystem.api.File;
@@ -262,6 +264,19 @@ public class LocalMachineDirectory implements Directory {
         consumer.accept(files);
     }
 
+    @Override
+    public ChildPage streamChildren(ChildQuery query) {
+        ChildPaging paging = new ChildPaging(query);
+
+        for ( Path root : this.roots ) {
+            if ( ! paging.accept(this.fileSystem.toLocalFSEntry(root)) ) {
+                break;
+            }
+        }
+
+        return paging.page();
+    }
+
     @Override
     public void host(FSEntry newEntry, Consumer<Boolean> callback) {
         throw new UnsupportedOperationException("This directory is root");
@@ -362,6 +377,11 @@ public class LocalMachineDirectory implements Directory {
         // do nothing
     }
 
+    @Override
+    public void watchTree(int depthLimit) {
+        // do nothing
+    }
+
     List<Path> roots() {
         return this.roots;
     }
@@ -0,0 +1,238 @@
+package diarsid.filesystem.impl.local;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import diarsid.files.PathBearer;
+import diarsid.support.concurrency.threads.IncrementNamedThreadFactory;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/*
+ * One OS WatchService and one dispatcher thread for all directories watched by a LocalFileSystem.
+ * Each watched directory is only a WatchKey inside of this service, events are routed
+ * back to the directory by WatchKey.watchable().
+ *
+ * OVERFLOW is passed to callback with path of the directory which events have been lost.
+ */
+class LocalWatchEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalWatchEngine.class);
+
+    static class Registration implements PathBearer {
+
+        static final int NOT_SUBTREE = 0;
+
+        private final Path path;
+        private final WatchKey watchKey;
+        private volatile int subtreeDepth;
+        private volatile DirectorySnapshot snapshot;
+
+        private Registration(Path path, WatchKey watchKey) {
+            this.path = path;
+            this.watchKey = watchKey;
+            this.subtreeDepth = NOT_SUBTREE;
+        }
+
+        DirectorySnapshot snapshot() {
+            return this.snapshot;
+        }
+
+        void snapshotIfAbsent(DirectorySnapshot snapshot) {
+            if ( isNull(this.snapshot) ) {
+                this.snapshot = snapshot;
+            }
+        }
+
+        @Override
+        public Path path() {
+            return this.path;
+        }
+
+        /* how many levels of subdirectories below this directory are watched as well */
+        int subtreeDepth() {
+            return this.subtreeDepth;
+        }
+
+        void deepenSubtreeTo(int depth) {
+            if ( depth > this.subtreeDepth ) {
+                this.subtreeDepth = depth;
+            }
+        }
+    }
+
+    private final java.nio.file.FileSystem fileSystem;
+    private final BiConsumer<WatchEvent.Kind<?>, Path> callback;
+    private final Consumer<Registration> onInvalidated;
+    private final Map<WatchKey, Registration> registrationsByKeys;
+    private final Object registrations;
+    private final Object lifecycle;
+    private WatchService watchService;
+    private ExecutorService async;
+    private volatile boolean working;
+
+    LocalWatchEngine(
+            java.nio.file.FileSystem fileSystem,
+            BiConsumer<WatchEvent.Kind<?>, Path> callback,
+            Consumer<Registration> onInvalidated) {
+        this.fileSystem = fileSystem;
+        this.callback = callback;
+        this.onInvalidated = onInvalidated;
+        this.registrationsByKeys = new ConcurrentHashMap<>();
+        this.registrations = new Object();
+        this.lifecycle = new Object();
+        this.working = false;
+    }
+
+    Registration register(Path directory) throws IOException {
+        this.startIfNotWorking();
+
+        /* dispatcher may take events of the key before it is put, it waits for this lock then */
+        synchronized ( this.registrations ) {
+            WatchKey watchKey = directory.register(this.watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            Registration registration = new Registration(directory, watchKey);
+            this.registrationsByKeys.put(watchKey, registration);
+            return registration;
+        }
+    }
+
+    void unregister(Registration registration) {
+        this.registrationsByKeys.remove(registration.watchKey);
+        registration.watchKey.cancel();
+    }
+
+    /* cancels all registrations, closing of WatchService makes dispatcher leave its loop */
+    void destroy() {
+        synchronized ( this.lifecycle ) {
+            if ( ! this.working ) {
+                return;
+            }
+
+            this.working = false;
+
+            synchronized ( this.registrations ) {
+                this.registrationsByKeys.keySet().forEach(WatchKey::cancel);
+                this.registrationsByKeys.clear();
+            }
+
+            try {
+                this.watchService.close();
+            }
+            catch (IOException e) {
+                log.error("Cannot close watch service", e);
+            }
+
+            this.async.shutdownNow();
+            this.watchService = null;
+            this.async = null;
+        }
+    }
+
+    private void startIfNotWorking() throws IOException {
+        if ( this.working ) {
+            return;
+        }
+
+        synchronized ( this.lifecycle ) {
+            if ( this.working ) {
+                return;
+            }
+
+            this.watchService = this.fileSystem.newWatchService();
+            this.async = Executors.newFixedThreadPool(1, new IncrementNamedThreadFactory(
+                    LocalWatchEngine.class.getSimpleName() + ".%s"));
+            this.working = true;
+            this.async.submit(this::asyncDispatching);
+        }
+    }
+
+    private void asyncDispatching() {
+        WatchKey watchKey;
+        Registration registration;
+        Path directory;
+        Path path;
+        DirectorySnapshot snapshot;
+
+        while ( this.working ) {
+            try {
+                watchKey = this.watchService.take();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            catch (ClosedWatchServiceException e) {
+                break;
+            }
+
+            registration = this.registrationsByKeys.get(watchKey);
+
+            if ( isNull(registration) ) {
+                synchronized ( this.registrations ) {
+                    registration = this.registrationsByKeys.get(watchKey);
+                }
+            }
+
+            if ( isNull(registration) ) {
+                watchKey.cancel();
+                continue;
+            }
+
+            directory = (Path) watchKey.watchable();
+            snapshot = registration.snapshot;
+
+            try {
+                List<WatchEvent<?>> watchEvents = watchKey.pollEvents();
+                for ( WatchEvent<?> watchEvent : watchEvents ) {
+                    if ( watchEvent.kind() == OVERFLOW ) {
+                        this.callback.accept(OVERFLOW, directory);
+                        continue;
+                    }
+
+                    path = directory.resolve((Path) watchEvent.context());
+
+                    if ( nonNull(snapshot) ) {
+                        if ( watchEvent.kind() == ENTRY_CREATE ) {
+                            snapshot.created(path);
+                        }
+                        else if ( watchEvent.kind() == ENTRY_DELETE ) {
+                            snapshot.removed(path);
+                        }
+                        else if ( watchEvent.kind() == ENTRY_MODIFY ) {
+                            snapshot.modified(path);
+                        }
+                    }
+
+                    this.callback.accept(watchEvent.kind(), path);
+                }
+            }
+            catch (Exception e) {
+                log.error("Cannot dispatch events of " + directory, e);
+            }
+
+            if ( ! watchKey.reset() ) {
+                this.registrationsByKeys.remove(watchKey);
+                this.onInvalidated.accept(registration);
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package diarsid.filesystem.impl.local;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+
+/*
+ * Copies directory tree in two phases on own ForkJoinPool:
+ *   1. directories are created in depth order - every directory task creates its target and only
+ *      then forks tasks of its subdirectories, files found on the way are collected;
+ *   2. collected files are copied by range tasks splitting in halves, idle workers steal them.
+ * After the first failure no new work is started, already running copies are finished.
+ */
+class ParallelCopy {
+
+    private static final int FILES_PER_TASK = 16;
+
+    static class FileCopy {
+
+        final Path source;
+        final Path target;
+
+        FileCopy(Path source, Path target) {
+            this.source = source;
+            this.target = target;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final FileTransfer transfer;
+
+    ParallelCopy(int parallelism, FileTransfer transfer) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.transfer = transfer;
+    }
+
+    /*
+     * Returns failures, empty list means that whole tree has been copied.
+     * Source is listed while target is created, so target must not be inside of source.
+     */
+    List<IOException> copy(Path sourceDirectory, Path targetDirectory, FileTransfer.Progress progress) {
+        if ( targetDirectory.toAbsolutePath().normalize().startsWith(sourceDirectory.toAbsolutePath().normalize()) ) {
+            return List.of(new FileSystemException(
+                    sourceDirectory.toString(), targetDirectory.toString(), "Cannot copy directory into itself"));
+        }
+
+        Copying copying = new Copying(progress);
+
+        this.pool.invoke(new DirectoryCopy(copying, sourceDirectory, targetDirectory));
+
+        if ( copying.failures.isEmpty() ) {
+            FileCopy[] files = copying.files.toArray(new FileCopy[0]);
+            this.pool.invoke(new FilesCopy(copying, files, 0, files.length));
+        }
+
+        return new ArrayList<>(copying.failures);
+    }
+
+    private static class Copying {
+
+        final FileTransfer.Progress progress;
+        final ConcurrentLinkedQueue<FileCopy> files;
+        final ConcurrentLinkedQueue<IOException> failures;
+        volatile boolean failed;
+
+        Copying(FileTransfer.Progress progress) {
+            this.progress = progress;
+            this.files = new ConcurrentLinkedQueue<>();
+            this.failures = new ConcurrentLinkedQueue<>();
+            this.failed = false;
+        }
+
+        void fail(IOException e) {
+            this.failures.add(e);
+            this.failed = true;
+        }
+    }
+
+    private class DirectoryCopy extends RecursiveAction {
+
+        private final Copying copying;
+        private final Path source;
+        private final Path target;
+
+        DirectoryCopy(Copying copying, Path source, Path target) {
+            this.copying = copying;
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        protected void compute() {
+            if ( this.copying.failed ) {
+                return;
+            }
+
+            List<DirectoryCopy> subdirectories = new ArrayList<>();
+
+            try {
+                transfer.copy(this.source, this.target, this.copying.progress, COPY_ATTRIBUTES);
+
+                try (DirectoryStream<Path> children = Files.newDirectoryStream(this.source)) {
+                    for ( Path child : children ) {
+                        Path childTarget = this.target.resolve(child.getFileName().toString());
+                        BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class, NOFOLLOW_LINKS);
+
+                        if ( attributes.isDirectory() ) {
+                            subdirectories.add(new DirectoryCopy(this.copying, child, childTarget));
+                        }
+                        else {
+                            this.copying.files.add(new FileCopy(child, childTarget));
+                        }
+                    }
+                }
+            }
+            catch (IOException e) {
+                this.copying.fail(e);
+                return;
+            }
+
+            invokeAll(subdirectories);
+        }
+    }
+
+    private class FilesCopy extends RecursiveAction {
+
+        private final Copying copying;
+        private final FileCopy[] files;
+        private final int from;
+        private final int to;
+
+        FilesCopy(Copying copying, FileCopy[] files, int from, int to) {
+            this.copying = copying;
+            this.files = files;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if ( this.to - this.from > FILES_PER_TASK ) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(
+                        new FilesCopy(this.copying, this.files, this.from, middle),
+                        new FilesCopy(this.copying, this.files, middle, this.to));
+                return;
+            }
+
+            FileCopy file;
+            for ( int i = this.from; i < this.to && ! this.copying.failed; i++ ) {
+                file = this.files[i];
+                try {
+                    transfer.copy(file.source, file.target, this.copying.progress, COPY_ATTRIBUTES);
+                }
+                catch (IOException e) {
+                    this.copying.fail(e);
+                }
+            }
+        }
+    }
+}
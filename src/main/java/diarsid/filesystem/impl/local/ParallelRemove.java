@@ -0,0 +1,322 @@
+package diarsid.filesystem.impl.local;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import static diarsid.filesystem.api.Diagnostics.Category.REMOVE;
+import static diarsid.filesystem.api.Diagnostics.event;
+import static diarsid.filesystem.api.Diagnostics.failure;
+
+/*
+ * Removes directory tree bottom-up on own ForkJoinPool. Every directory task forks tasks for its
+ * subdirectories and for chunks of its files, its pending count is a count of not yet finished
+ * children. When the last child finishes, the directory itself is deleted and its parent is
+ * notified in turn. Failure of a path does not stop removal of other paths, directories that
+ * have failed children are just not deleted. Removed paths are passed to the consumer in batches
+ * of at most batchSize paths as soon as batch is full, children always go before their parents.
+ */
+class ParallelRemove {
+
+    private static final int FILES_PER_TASK = 64;
+
+    static class Removal {
+
+        private final Map<Path, IOException> failures;
+        private final ConcurrentLinkedQueue<Path> remainingDirectories;
+        private final long removedCount;
+
+        private Removal(Removing removing) {
+            this.failures = removing.failures;
+            this.remainingDirectories = removing.remainingDirectories;
+            this.removedCount = removing.removedCount;
+        }
+
+        boolean isComplete() {
+            return this.failures.isEmpty();
+        }
+
+        Map<Path, IOException> failures() {
+            return this.failures;
+        }
+
+        List<Path> remainingDirectories() {
+            return new ArrayList<>(this.remainingDirectories);
+        }
+
+        long removedCount() {
+            return this.removedCount;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final int batchSize;
+
+    ParallelRemove(int parallelism, int batchSize) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.batchSize = batchSize;
+    }
+
+    Removal remove(Path directory, Consumer<List<Path>> onRemoved) {
+        Removing removing = new Removing(this.batchSize, onRemoved);
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(directory, BasicFileAttributes.class, NOFOLLOW_LINKS);
+        }
+        catch (IOException e) {
+            removing.failed(directory, e);
+            return new Removal(removing);
+        }
+
+        if ( attributes.isDirectory() ) {
+            this.pool.invoke(new DirectoryRemoval(null, removing, directory));
+        }
+        else {
+            /* link to directory is removed itself, its target is never entered */
+            try {
+                delete(removing, directory);
+            }
+            catch (IOException e) {
+                removing.failed(directory, e);
+            }
+        }
+
+        removing.flush();
+
+        return new Removal(removing);
+    }
+
+    private static class Removing {
+
+        final int batchSize;
+        final Consumer<List<Path>> onRemoved;
+        final Map<Path, IOException> failures;
+        final ConcurrentLinkedQueue<Path> remainingDirectories;
+        final Queue<List<Path>> sealedBatches;
+        List<Path> batch;
+        long removedCount;
+        boolean draining;
+
+        Removing(int batchSize, Consumer<List<Path>> onRemoved) {
+            this.batchSize = batchSize;
+            this.onRemoved = onRemoved;
+            this.failures = new ConcurrentHashMap<>();
+            this.remainingDirectories = new ConcurrentLinkedQueue<>();
+            this.sealedBatches = new ArrayDeque<>();
+            this.batch = new ArrayList<>();
+            this.removedCount = 0;
+            this.draining = false;
+        }
+
+        void removed(Path path) {
+            boolean sealed = false;
+
+            synchronized ( this ) {
+                this.batch.add(path);
+                this.removedCount++;
+
+                if ( this.batch.size() >= this.batchSize ) {
+                    this.seal();
+                    sealed = true;
+                }
+            }
+
+            if ( sealed ) {
+                this.drain();
+            }
+        }
+
+        void flush() {
+            synchronized ( this ) {
+                if ( ! this.batch.isEmpty() ) {
+                    this.seal();
+                }
+            }
+
+            this.drain();
+
+            synchronized ( this ) {
+                while ( this.draining ) {
+                    try {
+                        this.wait();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        /* order of sealing is the sequence of batches - batch with a parent never outruns batch with its children */
+        private void seal() {
+            this.sealedBatches.add(this.batch);
+            this.batch = new ArrayList<>();
+        }
+
+        /* consumer is called outside of lock by one thread at a time, others just leave their batches in queue */
+        private void drain() {
+            synchronized ( this ) {
+                if ( this.draining ) {
+                    return;
+                }
+                this.draining = true;
+            }
+
+            List<Path> next;
+            while ( true ) {
+                synchronized ( this ) {
+                    next = this.sealedBatches.poll();
+                    if ( isNull(next) ) {
+                        this.draining = false;
+                        this.notifyAll();
+                        return;
+                    }
+                }
+
+                try {
+                    this.onRemoved.accept(next);
+                }
+                catch (RuntimeException e) {
+                    failure(REMOVE, e);
+                }
+            }
+        }
+
+        void failed(Path path, IOException e) {
+            this.failures.put(path, e);
+        }
+    }
+
+    private void delete(Removing removing, Path path) throws IOException {
+        event(REMOVE, () -> "[remove] " + path);
+        Files.delete(path);
+        removing.removed(path);
+    }
+
+    private class DirectoryRemoval extends CountedCompleter<Void> {
+
+        private final DirectoryRemoval parent;
+        private final Removing removing;
+        private final Path directory;
+        private volatile boolean hasRemainingChildren;
+
+        DirectoryRemoval(DirectoryRemoval parent, Removing removing, Path directory) {
+            super(parent);
+            this.parent = parent;
+            this.removing = removing;
+            this.directory = directory;
+            this.hasRemainingChildren = false;
+        }
+
+        @Override
+        public void compute() {
+            List<Path> files = new ArrayList<>(FILES_PER_TASK);
+
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(this.directory)) {
+                for ( Path child : children ) {
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(child, BasicFileAttributes.class, NOFOLLOW_LINKS);
+                    }
+                    catch (IOException e) {
+                        this.removing.failed(child, e);
+                        this.hasRemainingChildren = true;
+                        continue;
+                    }
+
+                    if ( attributes.isDirectory() ) {
+                        this.addToPendingCount(1);
+                        new DirectoryRemoval(this, this.removing, child).fork();
+                    }
+                    else {
+                        files.add(child);
+                        if ( files.size() == FILES_PER_TASK ) {
+                            this.addToPendingCount(1);
+                            new FilesRemoval(this, files).fork();
+                            files = new ArrayList<>(FILES_PER_TASK);
+                        }
+                    }
+                }
+            }
+            catch (IOException e) {
+                this.removing.failed(this.directory, e);
+                this.hasRemainingChildren = true;
+            }
+
+            if ( ! files.isEmpty() ) {
+                this.addToPendingCount(1);
+                new FilesRemoval(this, files).fork();
+            }
+
+            this.tryComplete();
+        }
+
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            if ( this.hasRemainingChildren ) {
+                this.remain();
+                return;
+            }
+
+            try {
+                delete(this.removing, this.directory);
+            }
+            catch (IOException e) {
+                this.removing.failed(this.directory, e);
+                this.remain();
+            }
+        }
+
+        private void remain() {
+            this.removing.remainingDirectories.add(this.directory);
+            if ( nonNull(this.parent) ) {
+                this.parent.hasRemainingChildren = true;
+            }
+        }
+    }
+
+    private class FilesRemoval extends CountedCompleter<Void> {
+
+        private final DirectoryRemoval directory;
+        private final List<Path> files;
+
+        FilesRemoval(DirectoryRemoval directory, List<Path> files) {
+            super(directory);
+            this.directory = directory;
+            this.files = files;
+        }
+
+        @Override
+        public void compute() {
+            for ( Path file : this.files ) {
+                try {
+                    delete(this.directory.removing, file);
+                }
+                catch (IOException e) {
+                    this.directory.removing.failed(file, e);
+                    this.directory.hasRemainingChildren = true;
+                }
+            }
+
+            this.tryComplete();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package diarsid.filesystem.impl.local;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
@@ -34,22 +35,37 @@ public class ProgressTrackerBack<T> {
     private final Consumer<List<T>> onStart;
     private final Consumer<T> onItemStart;
     private final ProgressTracker.ProgressConsumer<T> onItemDone;
+    private final ProgressTracker.BytesConsumer<T> onItemBytes;
     private final Runnable onStop;
     private final AtomicLong done;
+    private final AtomicLong failed;
+    private final Object callbacksLock;
 
-    private long startTime;
-    private long stopTime;
-    private long all;
+    private volatile long startTime;
+    private volatile long stopTime;
+    private volatile long all;
 
     public ProgressTrackerBack(
             Consumer<List<T>> onStart,
             Consumer<T> onItemStart,
             ProgressTracker.ProgressConsumer<T> onItemDone,
             Runnable onStop) {
+        this(onStart, onItemStart, onItemDone, (item, file, bytesDone, bytesAll) -> {}, onStop);
+    }
+
+    public ProgressTrackerBack(
+            Consumer<List<T>> onStart,
+            Consumer<T> onItemStart,
+            ProgressTracker.ProgressConsumer<T> onItemDone,
+            ProgressTracker.BytesConsumer<T> onItemBytes,
+            Runnable onStop) {
         this.done = new AtomicLong(0);
+        this.failed = new AtomicLong(0);
+        this.callbacksLock = new Object();
         this.onStart = onStart;
         this.onItemStart = onItemStart;
         this.onItemDone = onItemDone;
+        this.onItemBytes = onItemBytes;
         this.onStop = onStop;
         this.clear();
     }
@@ -61,12 +77,29 @@ public class ProgressTrackerBack<T> {
         this.onStart.accept(allT);
     }
 
+    /*
+     * Items can be processed concurrently, callbacks are invoked one at a time.
+     */
     void processing(T t) {
-        this.onItemStart.accept(t);
+        synchronized ( this.callbacksLock ) {
+            this.onItemStart.accept(t);
+        }
     }
 
     void processingDone(T t) {
-        this.onItemDone.accept(this.done.getAndIncrement(), t);
+        synchronized ( this.callbacksLock ) {
+            this.onItemDone.accept(this.done.getAndIncrement(), t);
+        }
+    }
+
+    void processingFailed(T t) {
+        this.failed.incrementAndGet();
+    }
+
+    void processingBytes(T t, Path file, long fileBytesDone, long fileBytesAll) {
+        synchronized ( this.callbacksLock ) {
+            this.onItemBytes.accept(t, file, fileBytesDone, fileBytesAll);
+        }
     }
 
     void completed() {
@@ -78,10 +111,19 @@ public class ProgressTrackerBack<T> {
         return this.all;
     }
 
+    public long done() {
+        return this.done.get();
+    }
+
+    public long failed() {
+        return this.failed.get();
+    }
+
     public void clear() {
         this.startTime = NOT_MEASURED;
         this.stopTime = NOT_MEASURED;
         this.all = 0;
         this.done.set(0);
+        this.failed.set(0);
     }
 }
@@ -0,0 +1,204 @@
+package diarsid.filesystem.impl.local;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/*
+ * Resolves real paths as Path.toRealPath() does, but remembers every resolved path segment in
+ * a trie, so that only segments that have not been seen yet are checked on disk, one lstat for
+ * each. A symbolic link segment keeps its fully resolved target and resolution continues from
+ * that target. Paths with '.' or '..' segments are not cached. Segments are cached in the case
+ * they are given, so on case-insensitive file systems the result is not normalized to the actual
+ * case of names.
+ * Removal of any path invalidates all cached segments under it. When count of cached segments
+ * exceeds capacity, the whole trie is dropped. Capacity 0 disables caching.
+ */
+class RealPaths {
+
+    private static final int MAX_LINKS = 40;
+
+    private static class Node {
+
+        private final ConcurrentHashMap<Path, Node> children;
+        private final Path linkTarget;
+
+        private Node(Path linkTarget) {
+            this.children = new ConcurrentHashMap<>();
+            this.linkTarget = linkTarget;
+        }
+
+        private boolean isLink() {
+            return nonNull(this.linkTarget);
+        }
+
+        private int count() {
+            int count = 1;
+            for ( Node child : this.children.values() ) {
+                count = count + child.count();
+            }
+            return count;
+        }
+    }
+
+    private final int capacity;
+    private final ConcurrentHashMap<Path, Node> roots;
+    private int size;
+    private volatile long generation;
+
+    RealPaths(int capacity) {
+        this.capacity = capacity;
+        this.roots = new ConcurrentHashMap<>();
+        this.size = 0;
+        this.generation = 0;
+    }
+
+    boolean isEnabled() {
+        return this.capacity > 0;
+    }
+
+    Path realPathOf(Path path) throws IOException {
+        Path absolute = path.toAbsolutePath();
+
+        if ( this.capacity == 0 || isNull(absolute.getRoot()) || hasDotSegments(absolute) ) {
+            return absolute.toRealPath();
+        }
+
+        long generation = this.generation;
+        int links = 0;
+        Path current = absolute;
+
+        resolution: while ( true ) {
+            Path resolved = current.getRoot();
+            Node node = this.roots.computeIfAbsent(resolved, root -> new Node(null));
+            int namesCount = current.getNameCount();
+
+            Path name;
+            Node child;
+            for ( int i = 0; i < namesCount; i++ ) {
+                name = current.getName(i);
+                child = node.children.get(name);
+
+                if ( isNull(child) ) {
+                    child = this.lookup(node, resolved, name, generation);
+                }
+
+                if ( child.isLink() ) {
+                    links++;
+                    if ( links > MAX_LINKS ) {
+                        throw new FileSystemException(path.toString(), null, "Too many levels of symbolic links");
+                    }
+
+                    if ( i + 1 < namesCount ) {
+                        current = child.linkTarget.resolve(current.subpath(i + 1, namesCount));
+                    }
+                    else {
+                        current = child.linkTarget;
+                    }
+                    continue resolution;
+                }
+
+                resolved = resolved.resolve(name);
+                node = child;
+            }
+
+            return resolved;
+        }
+    }
+
+    private Node lookup(Node parent, Path parentPath, Path name, long generation) throws IOException {
+        Path path = parentPath.resolve(name);
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, NOFOLLOW_LINKS);
+
+        Node node;
+        if ( attributes.isSymbolicLink() ) {
+            node = new Node(path.toRealPath());
+        }
+        else {
+            node = new Node(null);
+        }
+
+        synchronized ( this ) {
+            /* something has been invalidated since resolution has begun, result is not reliable to be cached */
+            if ( generation != this.generation ) {
+                return node;
+            }
+
+            if ( this.size >= this.capacity ) {
+                this.roots.clear();
+                this.size = 0;
+                this.generation++;
+                return node;
+            }
+
+            Node existing = parent.children.putIfAbsent(name, node);
+            if ( isNull(existing) ) {
+                this.size++;
+                return node;
+            }
+            else {
+                return existing;
+            }
+        }
+    }
+
+    void invalidate(List<Path> paths) {
+        if ( this.capacity == 0 ) {
+            return;
+        }
+
+        synchronized ( this ) {
+            for ( Path path : paths ) {
+                this.invalidate(path);
+            }
+            this.generation++;
+        }
+    }
+
+    private void invalidate(Path path) {
+        Path root = path.getRoot();
+        if ( isNull(root) ) {
+            return;
+        }
+
+        int namesCount = path.getNameCount();
+        if ( namesCount == 0 ) {
+            this.roots.clear();
+            this.size = 0;
+            return;
+        }
+
+        Node node = this.roots.get(root);
+        for ( int i = 0; i < namesCount - 1 && nonNull(node); i++ ) {
+            node = node.children.get(path.getName(i));
+        }
+
+        if ( isNull(node) ) {
+            return;
+        }
+
+        Node removed = node.children.remove(path.getFileName());
+        if ( nonNull(removed) ) {
+            this.size = this.size - removed.count();
+        }
+    }
+
+    private static boolean hasDotSegments(Path path) {
+        String name;
+        for ( Path segment : path ) {
+            name = segment.toString();
+            if ( name.equals(".") || name.equals("..") ) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,64 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/*
+ * Orders paths segment by segment, so that all descendants of any path go right after it
+ * as one contiguous range. Path.compareTo() does not guarantee it: '/a/b-x' is placed
+ * between '/a/b' and '/a/b/c' because '-' is less than the separator.
+ */
+class Subtrees {
+
+    static final Comparator<Path> ORDER = Subtrees::compare;
+
+    private Subtrees() {
+    }
+
+    static int compare(Path path1, Path path2) {
+        String string1 = path1.toString();
+        String string2 = path2.toString();
+        char separator = path1.getFileSystem().getSeparator().charAt(0);
+
+        int length = Math.min(string1.length(), string2.length());
+        char char1;
+        char char2;
+        for ( int i = 0; i < length; i++ ) {
+            char1 = string1.charAt(i);
+            char2 = string2.charAt(i);
+            if ( char1 != char2 ) {
+                if ( char1 == separator ) {
+                    return -1;
+                }
+                if ( char2 == separator ) {
+                    return 1;
+                }
+                return Character.compare(char1, char2);
+            }
+        }
+
+        return Integer.compare(string1.length(), string2.length());
+    }
+
+    /* map must be ordered by Subtrees.ORDER */
+    static <V> List<V> removeSubtree(NavigableMap<Path, V> map, Path root) {
+        List<V> removed = new ArrayList<>();
+
+        var subtree = map.tailMap(root, true).entrySet().iterator();
+        Map.Entry<Path, V> entry;
+        while ( subtree.hasNext() ) {
+            entry = subtree.next();
+            if ( ! entry.getKey().startsWith(root) ) {
+                break;
+            }
+            removed.add(entry.getValue());
+            subtree.remove();
+        }
+
+        return removed;
+    }
+}
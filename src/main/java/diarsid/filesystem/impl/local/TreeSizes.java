@@ -0,0 +1,28 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Path;
+
+import diarsid.filesystem.api.TreeSize;
+
+/*
+ * Tree size is taken from subtotal of the tree, subtotals of watched subtrees are cached and
+ * shared with ExtensionStats.
+ */
+class TreeSizes {
+
+    private final TreeTotals totals;
+
+    TreeSizes(TreeTotals totals) {
+        this.totals = totals;
+    }
+
+    TreeSize sizeOf(Path directory) {
+        TreeTotals.Subtotal subtotal = this.totals.totalOf(directory);
+
+        return new TreeSize(
+                subtotal.bytes(),
+                subtotal.files(),
+                subtotal.directories(),
+                subtotal.unreadableDirectories());
+    }
+}
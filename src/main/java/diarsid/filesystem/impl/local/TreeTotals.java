@@ -0,0 +1,532 @@
+package diarsid.filesystem.impl.local;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+import diarsid.files.Extension;
+import diarsid.files.Extensions;
+import diarsid.filesystem.api.FSEntry;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/*
+ * Computes totals of directory trees on own ForkJoinPool, every directory is a task that forks
+ * tasks of its subdirectories. Subtotal of a directory counts files of the whole its subtree per
+ * extension, so that both tree sizes and tree stats are taken from it.
+ * Subtotal is cached only when the directory and all directories under it are watched, so that
+ * any change in it is reported and invalidates the subtotal together with subtotals of all its
+ * ancestors. Next computation then reuses subtotals of unchanged branches and lists only the
+ * changed one.
+ * Change reported while computation goes prevents caching only of subtotals that it affects -
+ * of the changed path, its subtree and its ancestors. For that every change is stamped and stamps
+ * of changed paths are kept while there are computations that have begun before them.
+ * Ignored entries are not counted and ignored directories are not listed at all.
+ */
+class TreeTotals {
+
+    /* totals of a directory tree, immutable, counts of files are ordered by extension index */
+    static class Subtotal {
+
+        private static final Extension[] NO_EXTENSIONS = new Extension[0];
+        private static final long[] NO_COUNTS = new long[0];
+
+        private static final Subtotal UNREADABLE = new Subtotal(
+                NO_EXTENSIONS, NO_COUNTS, NO_COUNTS, 0, 0, 0, 1);
+
+        private final Extension[] extensions;
+        private final long[] files;
+        private final long[] bytes;
+        private final long filesWithoutExtension;
+        private final long bytesWithoutExtension;
+        private final long directories;
+        private final long unreadableDirectories;
+
+        private Subtotal(
+                Extension[] extensions,
+                long[] files,
+                long[] bytes,
+                long filesWithoutExtension,
+                long bytesWithoutExtension,
+                long directories,
+                long unreadableDirectories) {
+            this.extensions = extensions;
+            this.files = files;
+            this.bytes = bytes;
+            this.filesWithoutExtension = filesWithoutExtension;
+            this.bytesWithoutExtension = bytesWithoutExtension;
+            this.directories = directories;
+            this.unreadableDirectories = unreadableDirectories;
+        }
+
+        int extensionsCount() {
+            return this.extensions.length;
+        }
+
+        Extension extension(int i) {
+            return this.extensions[i];
+        }
+
+        long files(int i) {
+            return this.files[i];
+        }
+
+        long bytes(int i) {
+            return this.bytes[i];
+        }
+
+        long filesWithoutExtension() {
+            return this.filesWithoutExtension;
+        }
+
+        long bytesWithoutExtension() {
+            return this.bytesWithoutExtension;
+        }
+
+        long files() {
+            long files = this.filesWithoutExtension;
+            for ( long extensionFiles : this.files ) {
+                files = files + extensionFiles;
+            }
+            return files;
+        }
+
+        long bytes() {
+            long bytes = this.bytesWithoutExtension;
+            for ( long extensionBytes : this.bytes ) {
+                bytes = bytes + extensionBytes;
+            }
+            return bytes;
+        }
+
+        long directories() {
+            return this.directories;
+        }
+
+        long unreadableDirectories() {
+            return this.unreadableDirectories;
+        }
+    }
+
+    /* sum of subtotals, counts of files are merged by extension index */
+    private static class Sum {
+
+        private Extension[] extensions;
+        private long[] files;
+        private long[] bytes;
+        private int size;
+        private long filesWithoutExtension;
+        private long bytesWithoutExtension;
+        private long directories;
+        private long unreadableDirectories;
+
+        private Sum() {
+            this.extensions = Subtotal.NO_EXTENSIONS;
+            this.files = Subtotal.NO_COUNTS;
+            this.bytes = Subtotal.NO_COUNTS;
+            this.size = 0;
+        }
+
+        private void add(Subtotal subtotal) {
+            this.filesWithoutExtension = this.filesWithoutExtension + subtotal.filesWithoutExtension;
+            this.bytesWithoutExtension = this.bytesWithoutExtension + subtotal.bytesWithoutExtension;
+            this.directories = this.directories + subtotal.directories;
+            this.unreadableDirectories = this.unreadableDirectories + subtotal.unreadableDirectories;
+
+            int length = subtotal.extensions.length;
+            if ( length == 0 ) {
+                return;
+            }
+
+            Extension[] extensions = new Extension[this.size + length];
+            long[] files = new long[this.size + length];
+            long[] bytes = new long[this.size + length];
+
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            int order;
+            while ( i < this.size || j < length ) {
+                if ( i == this.size ) {
+                    order = 1;
+                }
+                else if ( j == length ) {
+                    order = -1;
+                }
+                else {
+                    order = Integer.compare(this.extensions[i].index(), subtotal.extensions[j].index());
+                }
+
+                if ( order < 0 ) {
+                    extensions[k] = this.extensions[i];
+                    files[k] = this.files[i];
+                    bytes[k] = this.bytes[i];
+                    i++;
+                }
+                else if ( order > 0 ) {
+                    extensions[k] = subtotal.extensions[j];
+                    files[k] = subtotal.files[j];
+                    bytes[k] = subtotal.bytes[j];
+                    j++;
+                }
+                else {
+                    extensions[k] = this.extensions[i];
+                    files[k] = this.files[i] + subtotal.files[j];
+                    bytes[k] = this.bytes[i] + subtotal.bytes[j];
+                    i++;
+                    j++;
+                }
+                k++;
+            }
+
+            this.extensions = extensions;
+            this.files = files;
+            this.bytes = bytes;
+            this.size = k;
+        }
+
+        private Subtotal toSubtotal() {
+            return new Subtotal(
+                    Arrays.copyOf(this.extensions, this.size),
+                    Arrays.copyOf(this.files, this.size),
+                    Arrays.copyOf(this.bytes, this.size),
+                    this.filesWithoutExtension,
+                    this.bytesWithoutExtension,
+                    this.directories,
+                    this.unreadableDirectories);
+        }
+    }
+
+    /* files of one directory counted per extension */
+    private static class Listing {
+
+        private final List<Path> subdirectories;
+        private Extension[] extensions;
+        private long[] files;
+        private long[] bytes;
+        private int size;
+        private long filesWithoutExtension;
+        private long bytesWithoutExtension;
+
+        private Listing() {
+            this.subdirectories = new ArrayList<>();
+            this.extensions = new Extension[4];
+            this.files = new long[4];
+            this.bytes = new long[4];
+            this.size = 0;
+        }
+
+        private void add(Extension extension, long fileBytes) {
+            if ( isNull(extension) ) {
+                this.filesWithoutExtension++;
+                this.bytesWithoutExtension = this.bytesWithoutExtension + fileBytes;
+                return;
+            }
+
+            /* directory usually has few distinct extensions */
+            int i = 0;
+            while ( i < this.size && this.extensions[i] != extension ) {
+                i++;
+            }
+
+            if ( i == this.size ) {
+                if ( this.size == this.extensions.length ) {
+                    this.extensions = Arrays.copyOf(this.extensions, this.size * 2);
+                    this.files = Arrays.copyOf(this.files, this.size * 2);
+                    this.bytes = Arrays.copyOf(this.bytes, this.size * 2);
+                }
+                this.extensions[i] = extension;
+                this.size++;
+            }
+
+            this.files[i]++;
+            this.bytes[i] = this.bytes[i] + fileBytes;
+        }
+
+        /* own files of directory, ordered by extension index as subtotals are */
+        private Subtotal toSubtotal() {
+            Extension[] extensions = Arrays.copyOf(this.extensions, this.size);
+            long[] files = Arrays.copyOf(this.files, this.size);
+            long[] bytes = Arrays.copyOf(this.bytes, this.size);
+
+            Extension extension;
+            long extensionFiles;
+            long extensionBytes;
+            int j;
+            for ( int i = 1; i < this.size; i++ ) {
+                extension = extensions[i];
+                extensionFiles = files[i];
+                extensionBytes = bytes[i];
+                j = i - 1;
+                while ( j >= 0 && extensions[j].index() > extension.index() ) {
+                    extensions[j + 1] = extensions[j];
+                    files[j + 1] = files[j];
+                    bytes[j + 1] = bytes[j];
+                    j--;
+                }
+                extensions[j + 1] = extension;
+                files[j + 1] = extensionFiles;
+                bytes[j + 1] = extensionBytes;
+            }
+
+            return new Subtotal(
+                    extensions,
+                    files,
+                    bytes,
+                    this.filesWithoutExtension,
+                    this.bytesWithoutExtension,
+                    this.subdirectories.size(),
+                    0);
+        }
+    }
+
+    private static class Walked {
+
+        final Subtotal subtotal;
+        final boolean cacheable;
+
+        Walked(Subtotal subtotal, boolean cacheable) {
+            this.subtotal = subtotal;
+            this.cacheable = cacheable;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final Predicate<Path> watched;
+    private final BiPredicate<Path, Boolean> ignored;
+    private final Extensions extensions;
+    private final TreeMap<Path, Subtotal> subtotals;
+    private final Map<Path, Long> changedAt;
+    private final Map<Path, Long> changedUnderAt;
+    private final TreeMap<Long, Integer> walksByStartStamps;
+    private long stamp;
+    private long allChangedAt;
+
+    TreeTotals(
+            int parallelism,
+            Predicate<Path> watched,
+            BiPredicate<Path, Boolean> ignored,
+            Extensions extensions) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.watched = watched;
+        this.ignored = ignored;
+        this.extensions = extensions;
+        this.subtotals = new TreeMap<>(Subtrees.ORDER);
+        this.changedAt = new HashMap<>();
+        this.changedUnderAt = new HashMap<>();
+        this.walksByStartStamps = new TreeMap<>();
+        this.stamp = 0;
+        this.allChangedAt = 0;
+    }
+
+    Subtotal totalOf(Path directory) {
+        long startStamp;
+        synchronized ( this.subtotals ) {
+            startStamp = this.stamp;
+            this.walksByStartStamps.merge(startStamp, 1, Integer::sum);
+        }
+
+        try {
+            return this.pool.invoke(new DirectoryWalk(directory, startStamp)).subtotal;
+        }
+        finally {
+            synchronized ( this.subtotals ) {
+                this.walksByStartStamps.computeIfPresent(startStamp, (stamp, walks) -> walks == 1 ? null : walks - 1);
+                this.forgetChangesOlderThanWalks();
+            }
+        }
+    }
+
+    /* changed path makes subtotals of its subtree and of all its ancestors invalid */
+    void invalidate(Path changed) {
+        synchronized ( this.subtotals ) {
+            if ( ! this.subtotals.isEmpty() ) {
+                Subtrees.removeSubtree(this.subtotals, changed);
+                Path ancestor = changed.getParent();
+                while ( nonNull(ancestor) ) {
+                    this.subtotals.remove(ancestor);
+                    ancestor = ancestor.getParent();
+                }
+            }
+
+            if ( this.walksByStartStamps.isEmpty() ) {
+                return;
+            }
+
+            this.stamp++;
+            this.changedAt.put(changed, this.stamp);
+            Path ancestorOrSelf = changed;
+            while ( nonNull(ancestorOrSelf) ) {
+                this.changedUnderAt.put(ancestorOrSelf, this.stamp);
+                ancestorOrSelf = ancestorOrSelf.getParent();
+            }
+        }
+    }
+
+    void invalidate(List<Path> changed) {
+        for ( Path path : changed ) {
+            this.invalidate(path);
+        }
+    }
+
+    void invalidateEntries(List<FSEntry> changed) {
+        for ( FSEntry entry : changed ) {
+            this.invalidate(entry.path());
+        }
+    }
+
+    void invalidateAll() {
+        synchronized ( this.subtotals ) {
+            this.stamp++;
+            this.allChangedAt = this.stamp;
+            this.subtotals.clear();
+        }
+    }
+
+    int cachedCount() {
+        synchronized ( this.subtotals ) {
+            return this.subtotals.size();
+        }
+    }
+
+    private void forgetChangesOlderThanWalks() {
+        if ( this.walksByStartStamps.isEmpty() ) {
+            this.changedAt.clear();
+            this.changedUnderAt.clear();
+            return;
+        }
+
+        long oldestStartStamp = this.walksByStartStamps.firstKey();
+        this.changedAt.values().removeIf(stamp -> stamp <= oldestStartStamp);
+        this.changedUnderAt.values().removeIf(stamp -> stamp <= oldestStartStamp);
+    }
+
+    private Subtotal cached(Path directory) {
+        synchronized ( this.subtotals ) {
+            return this.subtotals.get(directory);
+        }
+    }
+
+    private void cache(Path directory, Subtotal subtotal, long startStamp) {
+        synchronized ( this.subtotals ) {
+            /* something has changed in this subtree since walk has begun, subtotal may be already outdated */
+            if ( this.allChangedAt > startStamp || isChangedAfter(this.changedUnderAt.get(directory), startStamp) ) {
+                return;
+            }
+
+            Path ancestor = directory;
+            while ( nonNull(ancestor) ) {
+                if ( isChangedAfter(this.changedAt.get(ancestor), startStamp) ) {
+                    return;
+                }
+                ancestor = ancestor.getParent();
+            }
+
+            this.subtotals.put(directory, subtotal);
+        }
+    }
+
+    private static boolean isChangedAfter(Long changeStamp, long startStamp) {
+        return nonNull(changeStamp) && changeStamp > startStamp;
+    }
+
+    private Listing list(Path directory) throws IOException {
+        Listing listing = new Listing();
+
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            BasicFileAttributes attributes;
+            for ( Path child : children ) {
+                try {
+                    attributes = Files.readAttributes(child, BasicFileAttributes.class, NOFOLLOW_LINKS);
+                }
+                catch (NoSuchFileException e) {
+                    continue;
+                }
+
+                if ( this.ignored.test(child, attributes.isDirectory()) ) {
+                    continue;
+                }
+
+                if ( attributes.isDirectory() ) {
+                    listing.subdirectories.add(child);
+                }
+                else {
+                    listing.add(this.extensions.getFor(child.getFileName().toString()).orElse(null), attributes.size());
+                }
+            }
+        }
+        catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+
+        return listing;
+    }
+
+    private class DirectoryWalk extends RecursiveTask<Walked> {
+
+        private final Path directory;
+        private final long startStamp;
+
+        DirectoryWalk(Path directory, long startStamp) {
+            this.directory = directory;
+            this.startStamp = startStamp;
+        }
+
+        @Override
+        protected Walked compute() {
+            Subtotal cached = cached(this.directory);
+            if ( nonNull(cached) ) {
+                return new Walked(cached, true);
+            }
+
+            Listing listing;
+            try {
+                listing = list(this.directory);
+            }
+            catch (IOException e) {
+                return new Walked(Subtotal.UNREADABLE, false);
+            }
+
+            List<DirectoryWalk> subdirectories = new ArrayList<>(listing.subdirectories.size());
+            for ( Path subdirectory : listing.subdirectories ) {
+                DirectoryWalk walk = new DirectoryWalk(subdirectory, this.startStamp);
+                walk.fork();
+                subdirectories.add(walk);
+            }
+
+            Sum sum = new Sum();
+            sum.add(listing.toSubtotal());
+            boolean cacheable = watched.test(this.directory);
+
+            Walked walked;
+            for ( DirectoryWalk subdirectory : subdirectories ) {
+                walked = subdirectory.join();
+                sum.add(walked.subtotal);
+                cacheable = cacheable && walked.cacheable;
+            }
+
+            Subtotal subtotal = sum.toSubtotal();
+            if ( cacheable ) {
+                cache(this.directory, subtotal, this.startStamp);
+            }
+
+            return new Walked(subtotal, cacheable);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package diarsid.filesystem.impl.local;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import diarsid.filesystem.api.FSEntry;
+
+/*
+ * Walks a tree once by Files.walkFileTree and keeps attributes read during the walk, so that
+ * entries can be classified, relocated and turned into FSEntries without any more stat calls.
+ * Symbolic links are not followed and are reported as not directories, only when an entry is
+ * turned into FSEntry the type of link target is resolved.
+ */
+class TreeWalk {
+
+    static class Entry {
+
+        private final Path path;
+        private final BasicFileAttributes attributes;
+
+        private Entry(Path path, BasicFileAttributes attributes) {
+            this.path = path;
+            this.attributes = attributes;
+        }
+
+        Path path() {
+            return this.path;
+        }
+
+        BasicFileAttributes attributes() {
+            return this.attributes;
+        }
+
+        boolean isDirectory() {
+            return this.attributes.isDirectory();
+        }
+
+        /* link is resolved by its current path, link to missing target is treated as file */
+        boolean pointsToDirectory() {
+            if ( this.attributes.isSymbolicLink() ) {
+                return Files.isDirectory(this.path);
+            }
+            else {
+                return this.attributes.isDirectory();
+            }
+        }
+
+        /* the same entry placed from oldRoot under newRoot */
+        Entry relocated(Path oldRoot, Path newRoot) {
+            return new Entry(newRoot.resolve(oldRoot.relativize(this.path)), this.attributes);
+        }
+
+        FSEntry toFSEntry(LocalFileSystem fileSystem) {
+            if ( this.pointsToDirectory() ) {
+                return fileSystem.toLocalDirectory(this.path);
+            }
+            else {
+                return fileSystem.toLocalFile(this.path);
+            }
+        }
+    }
+
+    private final Path root;
+    private final List<Entry> entries;
+
+    private TreeWalk(Path root, List<Entry> entries) {
+        this.root = root;
+        this.entries = entries;
+    }
+
+    static TreeWalk of(Path root) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                entries.add(new Entry(directory, attributes));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                entries.add(new Entry(file, attributes));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        return new TreeWalk(root, entries);
+    }
+
+    Path root() {
+        return this.root;
+    }
+
+    /* walk order - every directory goes before its content */
+    List<Entry> entries() {
+        return this.entries;
+    }
+
+    /* children go before their parents */
+    List<Path> pathsBottomUp() {
+        List<Path> paths = new ArrayList<>(this.entries.size());
+        for ( int i = this.entries.size() - 1; i > -1; i-- ) {
+            paths.add(this.entries.get(i).path);
+        }
+        return paths;
+    }
+
+    List<Path> directories() {
+        List<Path> directories = new ArrayList<>();
+        for ( Entry entry : this.entries ) {
+            if ( entry.isDirectory() ) {
+                directories.add(entry.path);
+            }
+        }
+        return directories;
+    }
+
+    /* FSEntries of the walked tree as if it has been moved from its root to newRoot */
+    List<FSEntry> toFSEntriesUnder(Path newRoot, LocalFileSystem fileSystem) {
+        List<FSEntry> fsEntries = new ArrayList<>(this.entries.size());
+        for ( Entry entry : this.entries ) {
+            fsEntries.add(entry.relocated(this.root, newRoot).toFSEntry(fileSystem));
+        }
+        return fsEntries;
+    }
+}
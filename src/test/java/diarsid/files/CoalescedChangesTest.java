@@ -0,0 +1,65 @@
+package diarsid.files;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CoalescedChangesTest {
+
+    private final Path a = Paths.get("dir/a");
+    private final Path b = Paths.get("dir/b");
+
+    @Test
+    public void createThenModifyIsCreate() {
+        CoalescedChanges changes = new CoalescedChanges();
+        changes.add(ENTRY_CREATE, a);
+        changes.add(ENTRY_MODIFY, a);
+        changes.add(ENTRY_MODIFY, a);
+
+        List<LocalDirectoryWatcher.Change> drained = changes.drain();
+
+        assertThat(drained).hasSize(1);
+        assertThat(drained.get(0).kind()).isEqualTo(ENTRY_CREATE);
+        assertThat(changes.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void createThenDeleteIsNothing() {
+        CoalescedChanges changes = new CoalescedChanges();
+        changes.add(ENTRY_CREATE, a);
+        changes.add(ENTRY_MODIFY, a);
+        changes.add(ENTRY_DELETE, a);
+
+        assertThat(changes.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void deleteThenCreateIsModify() {
+        CoalescedChanges changes = new CoalescedChanges();
+        changes.add(ENTRY_DELETE, a);
+        changes.add(ENTRY_CREATE, a);
+
+        assertThat(changes.drain().get(0).kind()).isEqualTo(ENTRY_MODIFY);
+    }
+
+    @Test
+    public void pathsKeepOrderOfFirstEvent() {
+        CoalescedChanges changes = new CoalescedChanges();
+        changes.add(ENTRY_MODIFY, b);
+        changes.add(ENTRY_CREATE, a);
+        changes.add(ENTRY_DELETE, b);
+
+        List<LocalDirectoryWatcher.Change> drained = changes.drain();
+
+        assertThat(drained).extracting(LocalDirectoryWatcher.Change::path).containsExactly(b, a);
+        assertThat(drained).extracting(LocalDirectoryWatcher.Change::kind).containsExactly(ENTRY_DELETE, ENTRY_CREATE);
+    }
+}
@@ -0,0 +1,52 @@
+package diarsid.files;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExtensionsTest {
+
+    private final Extensions extensions = new Extensions();
+
+    @Test
+    public void foldsCaseAndReturnsSameExtension() {
+        Extension lower = this.extensions.getFor("photo.jpg").orElseThrow();
+        Extension upper = this.extensions.getFor("PHOTO.JPG").orElseThrow();
+
+        assertThat(upper).isSameAs(lower);
+        assertThat(lower.name()).isEqualTo("jpg");
+        assertThat(lower.category()).isEqualTo(Extension.Category.IMAGE);
+        assertThat(this.extensions.getBy(" Jpg ")).isSameAs(lower);
+    }
+
+    @Test
+    public void addsUnknownExtensionsOnce() {
+        Extension unknown = this.extensions.getFor(Path.of("dir", "data.Qwerty")).orElseThrow();
+
+        assertThat(unknown.category()).isEqualTo(Extension.Category.UNKNOWN);
+        assertThat(this.extensions.getFor("other.qwerty").orElseThrow()).isSameAs(unknown);
+        assertThat(this.extensions.categoryOf("archive.tar.GZ")).isEqualTo(Extension.Category.ARCHIVE);
+        assertThat(this.extensions.categoryOf("no_extension")).isEqualTo(Extension.Category.UNKNOWN);
+        assertThat(this.extensions.getFor("file.")).isEmpty();
+    }
+
+    @Test
+    public void findsExtensionsWhichNameChangesLengthOnLowerCase() {
+        Extension dotted = this.extensions.getFor("file.\u0130mg").orElseThrow();
+
+        assertThat(this.extensions.getFor("other.\u0130MG").orElseThrow()).isSameAs(dotted);
+        assertThat(this.extensions.getFor("other.img").orElseThrow()).isSameAs(dotted);
+    }
+
+    @Test
+    public void matchesNameEndingInAnyCase() {
+        Extension extension = new Extension("Txt");
+
+        assertThat(extension.matches("notes.txt")).isTrue();
+        assertThat(extension.matches("NOTES.TXT")).isTrue();
+        assertThat(extension.matches("notes.tx")).isFalse();
+        assertThat(extension.matches("xt")).isFalse();
+    }
+}
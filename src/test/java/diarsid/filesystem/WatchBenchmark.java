@@ -0,0 +1,61 @@
+package diarsid.filesystem;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import diarsid.filesystem.api.Directory;
+import diarsid.filesystem.api.FileSystem;
+import diarsid.filesystem.api.ignoring.Ignores;
+import diarsid.support.concurrency.threads.NamedThreadSource;
+
+import static java.nio.file.FileSystems.getDefault;
+
+public class WatchBenchmark {
+
+    private static final int DIRECTORIES = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int directoriesQty = args.length > 0 ? Integer.parseInt(args[0]) : DIRECTORIES;
+
+        Path root = Files.createTempDirectory("watch-benchmark");
+        List<Path> paths = new ArrayList<>();
+        for ( int i = 0; i < directoriesQty; i++ ) {
+            paths.add(Files.createDirectories(root.resolve("d" + i / 100).resolve("d" + i)));
+        }
+
+        FileSystem fileSystem = FileSystem.newInstance(
+                Ignores.INSTANCE,
+                new NamedThreadSource(WatchBenchmark.class.getSimpleName()),
+                getDefault());
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        System.gc();
+        int threadsBefore = threads.getThreadCount();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        long start = System.currentTimeMillis();
+
+        for ( Path path : paths ) {
+            Directory directory = fileSystem.toDirectory(path).orThrow();
+            fileSystem.watch(directory);
+        }
+
+        long time = System.currentTimeMillis() - start;
+        System.gc();
+        int threadsAfter = threads.getThreadCount();
+        long heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+        System.out.println("directories watched : " + directoriesQty);
+        System.out.println("registration time   : " + time + " ms");
+        System.out.println("threads             : " + threadsBefore + " -> " + threadsAfter);
+        System.out.println("heap used           : " + (heapBefore / 1024) + " KB -> " + (heapAfter / 1024) + " KB");
+
+        System.exit(0);
+    }
+}
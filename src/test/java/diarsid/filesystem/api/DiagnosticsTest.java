@@ -0,0 +1,26 @@
+package diarsid.filesystem.api;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static diarsid.filesystem.api.Diagnostics.Category.REMOVE;
+
+public class DiagnosticsTest {
+
+    @Test
+    public void disabledCategoryCountsEventsWithoutBuildingMessages() {
+        AtomicInteger messagesBuilt = new AtomicInteger();
+        Diagnostics.disable(REMOVE);
+        long before = Diagnostics.eventsOf(REMOVE);
+
+        for ( int i = 0; i < 1000; i++ ) {
+            Diagnostics.eventWithOrigin(REMOVE, () -> "message " + messagesBuilt.incrementAndGet());
+        }
+
+        assertThat(Diagnostics.eventsOf(REMOVE) - before).isEqualTo(1000);
+        assertThat(messagesBuilt.get()).isZero();
+    }
+}
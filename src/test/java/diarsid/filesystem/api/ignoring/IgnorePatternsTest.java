@@ -0,0 +1,80 @@
+package diarsid.filesystem.api.ignoring;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IgnorePatternsTest {
+
+    private final Path base = Path.of("/project").toAbsolutePath();
+
+    private final IgnorePatterns patterns = IgnorePatterns.compile(this.base, List.of(
+            "# comment",
+            "",
+            "*.tmp",
+            "**/node_modules",
+            "build/",
+            "/docs/generated",
+            "src/**/*.bak",
+            "a/**/b",
+            "cache-?/"));
+
+    @Test
+    public void matchesNamesAtAnyDepth() {
+        assertThat(this.patterns.isIgnored(this.base.resolve("a/b/file.tmp"), false)).isTrue();
+        assertThat(this.patterns.isIgnored(this.base.resolve("a/node_modules"), true)).isTrue();
+        assertThat(this.patterns.isIgnored(Path.of("/elsewhere/node_modules").toAbsolutePath(), true)).isTrue();
+        assertThat(this.patterns.isIgnored(this.base.resolve("a/file.txt"), false)).isFalse();
+        assertThat(this.patterns.patterns()).hasSize(7);
+    }
+
+    @Test
+    public void matchesNamesIgnoringCase() {
+        assertThat(this.patterns.isIgnored(this.base.resolve("a/FILE.TMP"), false)).isTrue();
+        assertThat(this.patterns.isIgnored(this.base.resolve("a/Node_Modules"), true)).isTrue();
+        assertThat(this.patterns.isIgnored(this.base.resolve("a/Build"), true)).isTrue();
+        assertThat(this.patterns.isIgnored(this.base.resolve("Cache-1"), true)).isTrue();
+    }
+
+    @Test
+    public void matchesDirectoriesOnlyByTrailingSlash() {
+        assertThat(this.patterns.isIgnored(this.base.resolve("a/build"), true)).isTrue();
+        assertThat(this.patterns.isIgnored(this.base.resolve("a/build"), false)).isFalse();
+        assertThat(this.patterns.isIgnored(this.base.resolve("cache-1"), true)).isTrue();
+        assertThat(this.patterns.isIgnored(this.base.resolve("cache-1"), false)).isFalse();
+    }
+
+    @Test
+    public void matchesAnchoredPaths() {
+        assertThat(this.patterns.isIgnored(this.base.resolve("docs/generated"), true)).isTrue();
+        assertThat(this.patterns.isIgnored(this.base.resolve("other/docs/generated"), true)).isFalse();
+        assertThat(this.patterns.isIgnored(this.base.resolve("src/main/x.bak"), false)).isTrue();
+        assertThat(this.patterns.isIgnored(this.base.resolve("test/x.bak"), false)).isFalse();
+    }
+
+    @Test
+    public void matchesZeroOrMoreDirectoriesByDoubleStar() {
+        assertThat(this.patterns.isIgnored(this.base.resolve("a/b"), true)).isTrue();
+        assertThat(this.patterns.isIgnored(this.base.resolve("a/x/b"), true)).isTrue();
+        assertThat(this.patterns.isIgnored(this.base.resolve("a/x/y/b"), false)).isTrue();
+        assertThat(this.patterns.isIgnored(this.base.resolve("a/xb"), false)).isFalse();
+        assertThat(this.patterns.isIgnored(this.base.resolve("src/x.bak"), false)).isTrue();
+    }
+
+    @Test
+    public void asksTypeOfPathOnlyWhenNeeded() throws Exception {
+        Path root = Files.createTempDirectory("patterns");
+        Path build = Files.createDirectory(root.resolve("build"));
+        Path buildFile = Files.createFile(root.resolve("build.txt"));
+        IgnorePatterns patterns = IgnorePatterns.compile(root, List.of("build/", "*.log"));
+
+        assertThat(patterns.isIgnored(build)).isTrue();
+        assertThat(patterns.isIgnored(buildFile)).isFalse();
+        assertThat(patterns.isIgnored(root.resolve("absent.log"))).isTrue();
+        assertThat(IgnorePatterns.NONE.isIgnored(build)).isFalse();
+    }
+}
@@ -0,0 +1,74 @@
+package diarsid.filesystem.api.ignoring;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IgnoresHolderTest {
+
+    @Test
+    public void usesPatternsOfLatestSnapshot() {
+        Path base = Path.of("/project").toAbsolutePath();
+        IgnoresHolder ignores = new IgnoresHolder();
+        assertThat(ignores.isIgnored(base.resolve("file.tmp"))).isFalse();
+
+        ignores.usePatterns(IgnorePatterns.compile(base, List.of("*.tmp")));
+
+        assertThat(ignores.isIgnored(base.resolve("file.tmp"))).isTrue();
+        assertThat(ignores.allBy(Ignores.Sort.BY_PATH)).isEmpty();
+    }
+
+    @Test
+    public void readsExplicitSources() throws Exception {
+        Path directory = Files.createTempDirectory("ignores");
+        Files.write(directory.resolve(IgnoreSource.NAMES_FILE), List.of("# comment", "", "Thumbs.db"));
+        Files.write(directory.resolve(IgnoreSource.PATHS_FILE), List.of(directory.resolve("hidden").toString()));
+        Files.write(directory.resolve("rules"), List.of("*.log", "build/"));
+
+        List<IgnoreSource> sources = new ArrayList<>(IgnoreSource.inDirectory(directory));
+        sources.add(IgnoreSource.patterns(directory.resolve("rules")));
+        IgnoresHolder ignores = new IgnoresHolder(sources);
+
+        assertThat(ignores.isIgnored(directory.resolve("a/thumbs.db"))).isTrue();
+        assertThat(ignores.isIgnored(directory.resolve("hidden/inner/file"))).isTrue();
+        assertThat(ignores.isIgnored(directory.resolve("a/app.log"))).isTrue();
+        assertThat(ignores.isIgnored(directory.resolve("a/build"), true)).isTrue();
+        assertThat(ignores.isIgnored(directory.resolve("a/build"), false)).isFalse();
+        assertThat(ignores.isIgnored(directory.resolve("a/file"))).isFalse();
+        assertThat(ignores.sources()).hasSize(4);
+    }
+
+    @Test
+    public void ignoredByNameOrPatternDirectoryHidesItsSubtree() throws Exception {
+        Path directory = Files.createTempDirectory("ignores");
+        Files.write(directory.resolve(IgnoreSource.NAMES_FILE), List.of("node_modules"));
+        Files.write(directory.resolve("rules"), List.of("build/", "cache-*"));
+
+        List<IgnoreSource> sources = new ArrayList<>(IgnoreSource.inDirectory(directory));
+        sources.add(IgnoreSource.patterns(directory.resolve("rules")));
+        IgnoresHolder ignores = new IgnoresHolder(sources);
+
+        assertThat(ignores.isIgnored(directory.resolve("a/node_modules/lib/index.js"))).isTrue();
+        assertThat(ignores.isIgnored(directory.resolve("a/build/classes/A.class"), false)).isTrue();
+        assertThat(ignores.isIgnored(directory.resolve("a/cache-1/data"), false)).isTrue();
+        assertThat(ignores.isIgnored(directory.resolve("a/builds/file"), false)).isFalse();
+        assertThat(ignores.isIgnored(directory.resolve("a/lib/index.js"))).isFalse();
+    }
+
+    @Test
+    public void notifiesListenersOfChanges() {
+        Path base = Path.of("/project").toAbsolutePath();
+        IgnoresHolder ignores = new IgnoresHolder(List.of());
+        List<List<Path>> changes = new ArrayList<>();
+        ignores.listenForChanges(changes::add);
+
+        ignores.usePatterns(IgnorePatterns.compile(base, List.of("*.tmp")));
+
+        assertThat(changes).containsExactly(List.of());
+    }
+}
@@ -0,0 +1,40 @@
+package diarsid.filesystem.api.ignoring;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PathTrieTest {
+
+    @Test
+    public void findsOnlyExactPaths() {
+        Path base = Path.of("/project").toAbsolutePath();
+        PathTrie<String> trie = new PathTrie<>();
+        trie.put(base.resolve("a/b"), "ab");
+        trie.put(base.resolve("c"), "c");
+        trie.put(Path.of("relative/d"), "d");
+
+        assertThat(trie.get(base.resolve("a/b"))).isEqualTo("ab");
+        assertThat(trie.get(base.resolve("c"))).isEqualTo("c");
+        assertThat(trie.get(Path.of("relative/d"))).isEqualTo("d");
+
+        assertThat(trie.get(base.resolve("a"))).isNull();
+        assertThat(trie.get(base.resolve("a/b/e"))).isNull();
+        assertThat(trie.get(base.resolve("relative/d"))).isNull();
+    }
+
+    @Test
+    public void findsClosestAncestor() {
+        Path base = Path.of("/project").toAbsolutePath();
+        PathTrie<String> trie = new PathTrie<>();
+        trie.put(base.resolve("a"), "a");
+        trie.put(base.resolve("a/b/c"), "abc");
+
+        assertThat(trie.getOfSelfOrAncestor(base.resolve("a"))).isEqualTo("a");
+        assertThat(trie.getOfSelfOrAncestor(base.resolve("a/b/c/d"))).isEqualTo("a");
+        assertThat(trie.getOfSelfOrAncestor(base.resolve("ab"))).isNull();
+        assertThat(trie.getOfSelfOrAncestor(base)).isNull();
+    }
+}
@@ -0,0 +1,56 @@
+package diarsid.filesystem.impl.local;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+import diarsid.support.concurrency.threads.NamedThreadSource;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AsyncIOTest {
+
+    private final AsyncIO asyncIO = new AsyncIO(new NamedThreadSource(AsyncIOTest.class.getSimpleName()));
+
+    @Test
+    public void completes() throws Exception {
+        assertThat(this.asyncIO.supply(() -> 42).get(5, SECONDS)).isEqualTo(42);
+
+        CompletableFuture<Object> failed = this.asyncIO.supply(() -> {
+            throw new IOException("failed");
+        });
+
+        assertThatThrownBy(() -> failed.get(5, SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void cancellationInterruptsOperation() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> operation = this.asyncIO.supply(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(SECONDS.toMillis(30));
+                return false;
+            }
+            catch (InterruptedException e) {
+                interrupted.countDown();
+                return true;
+            }
+        });
+
+        assertThat(started.await(5, SECONDS)).isTrue();
+        assertThat(operation.cancel(true)).isTrue();
+        assertThat(interrupted.await(5, SECONDS)).isTrue();
+        assertThat(operation.isCancelled()).isTrue();
+    }
+}
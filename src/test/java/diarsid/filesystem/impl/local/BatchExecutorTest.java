@@ -0,0 +1,69 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import diarsid.filesystem.api.BatchResult;
+import diarsid.filesystem.api.FSEntry;
+
+import static java.util.Arrays.asList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchExecutorTest {
+
+    private static FSEntry directory(String path) {
+        return new LocalDirectory(Paths.get(path), null);
+    }
+
+    @Test
+    public void entriesWithCommonAncestorAreGroupedDeepestFirst() {
+        FSEntry a = directory("/batch/a");
+        FSEntry ab = directory("/batch/a/b");
+        FSEntry abc = directory("/batch/a/b/c");
+        FSEntry ax = directory("/batch/ax");
+        FSEntry d = directory("/batch/d");
+
+        List<FSEntry> entries = new ArrayList<>(asList(ab, d, a, abc, ax));
+        entries.sort(FSEntry.compareByDepth);
+
+        List<List<FSEntry>> groups = BatchExecutor.groupsOf(entries);
+
+        assertThat(groups).containsExactlyInAnyOrder(
+                asList(abc, ab, a),
+                asList(ax),
+                asList(d));
+    }
+
+    @Test
+    public void outcomesAreReportedPerEntry() {
+        FSEntry ok1 = directory("/batch/ok1");
+        FSEntry ok2 = directory("/batch/ok2");
+        FSEntry failing = directory("/batch/failing");
+        FSEntry throwing = directory("/batch/throwing");
+
+        BatchExecutor executor = new BatchExecutor(Executors.newCachedThreadPool(), 4);
+        ProgressTrackerBack<FSEntry> tracker = new ProgressTrackerBack<>(
+                all -> {}, entry -> {}, (index, entry) -> {}, () -> {});
+
+        BatchResult result = executor.execute(
+                asList(ok1, failing, ok2, throwing),
+                entry -> {
+                    if ( entry == throwing ) {
+                        throw new IllegalStateException();
+                    }
+                    return entry != failing;
+                },
+                tracker);
+
+        assertThat(result.isSuccessful()).isFalse();
+        assertThat(result.done()).containsExactly(ok1, ok2);
+        assertThat(result.failed()).containsExactly(failing, throwing);
+        assertThat(tracker.done()).isEqualTo(2);
+        assertThat(tracker.failed()).isEqualTo(2);
+    }
+}
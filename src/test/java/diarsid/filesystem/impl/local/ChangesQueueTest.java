@@ -0,0 +1,68 @@
+package diarsid.filesystem.impl.local;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import diarsid.filesystem.api.FileSystemSettings.ChangesDispatch;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangesQueueTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Test
+    public void listenerThatChangesItselfDoesNotBlockOnFullQueue() throws Exception {
+        ChangesDispatch dispatch = ChangesDispatch.async(1, ChangesDispatch.OverflowPolicy.BLOCK);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        CountDownLatch allReceived = new CountDownLatch(3);
+        AtomicReference<ChangesQueue<Integer>> queue = new AtomicReference<>();
+
+        queue.set(new ChangesQueue<>(dispatch, this.executor, closed -> {}));
+        queue.get().listen(batch -> {
+            received.addAll(batch);
+            if ( batch.get(0) == 1 ) {
+                queue.get().offer(List.of(2));
+                queue.get().offer(List.of(3));
+            }
+            allReceived.countDown();
+        });
+
+        queue.get().offer(List.of(1));
+
+        assertThat(allReceived.await(5, SECONDS)).isTrue();
+        assertThat(received).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    public void queueWithoutActiveListenerIsClosed() throws Exception {
+        ChangesDispatch dispatch = ChangesDispatch.async(2, ChangesDispatch.OverflowPolicy.BLOCK);
+        List<ChangesQueue<Integer>> queues = new CopyOnWriteArrayList<>();
+        CountDownLatch closed = new CountDownLatch(1);
+
+        ChangesQueue<Integer> queue = new ChangesQueue<>(dispatch, this.executor, closedQueue -> {
+            queues.remove(closedQueue);
+            closed.countDown();
+        });
+        queues.add(queue);
+
+        for ( int i = 0; i < 10; i++ ) {
+            queue.offer(List.of(i));
+        }
+
+        assertThat(closed.await(5, SECONDS)).isTrue();
+        assertThat(queues).isEmpty();
+    }
+}
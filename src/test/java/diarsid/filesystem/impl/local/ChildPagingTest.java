@@ -0,0 +1,110 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import diarsid.filesystem.api.ChildPage;
+import diarsid.filesystem.api.ChildQuery;
+import diarsid.filesystem.api.FSEntry;
+
+import static java.util.stream.Collectors.toList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChildPagingTest {
+
+    private static List<FSEntry> files(int count) {
+        List<FSEntry> files = new ArrayList<>();
+        for ( int i = 0; i < count; i++ ) {
+            files.add(new LocalFile(Path.of("/dir", String.format("file_%03d", i)).toAbsolutePath(), null));
+        }
+        return files;
+    }
+
+    private static List<FSEntry> readAll(List<FSEntry> children, ChildQuery query) {
+        List<FSEntry> all = new ArrayList<>();
+        ChildQuery next = query;
+        while ( next != null ) {
+            ChildPaging paging = new ChildPaging(next);
+            for ( FSEntry child : children ) {
+                if ( ! paging.accept(child) ) {
+                    break;
+                }
+            }
+            ChildPage page = paging.page();
+            assertThat(page.entries().size()).isLessThanOrEqualTo(query.pageSize());
+            all.addAll(page.entries());
+            next = page.next().orElse(null);
+        }
+        return all;
+    }
+
+    @Test
+    public void unsortedPagesKeepListingOrder() {
+        List<FSEntry> children = files(25);
+
+        assertThat(readAll(children, ChildQuery.pagesOf(10))).isEqualTo(children);
+    }
+
+    @Test
+    public void sortedPagesAreSortedAsWhole() {
+        List<FSEntry> children = files(103);
+        List<FSEntry> shuffled = new ArrayList<>(children);
+        Collections.shuffle(shuffled, new Random(7));
+
+        assertThat(readAll(shuffled, ChildQuery.pagesOf(10).sorted())).isEqualTo(children);
+        assertThat(readAll(shuffled, ChildQuery.pagesOf(7).sortedBy((one, other) -> 0))).isEqualTo(children);
+    }
+
+    @Test
+    public void filteredPages() {
+        List<FSEntry> children = files(30);
+        List<FSEntry> expected = children
+                .stream()
+                .filter(child -> child.name().endsWith("5"))
+                .collect(toList());
+
+        ChildQuery query = ChildQuery.pagesOf(2).filteredBy(child -> child.name().endsWith("5"));
+
+        assertThat(readAll(children, query)).isEqualTo(expected);
+        assertThat(readAll(children, query.sorted())).isEqualTo(expected);
+    }
+
+    @Test
+    public void unfilteredPagesSkipReturnedChildrenByPaths() {
+        List<FSEntry> children = files(25);
+
+        ChildQuery query = ChildQuery.pagesOf(10);
+        ChildPaging firstPaging = new ChildPaging(query);
+        for ( FSEntry child : children ) {
+            assertThat(firstPaging.isSkippingPaths()).isFalse();
+            if ( ! firstPaging.accept(child) ) {
+                break;
+            }
+        }
+
+        ChildQuery next = firstPaging.page().next().orElseThrow();
+        ChildPaging nextPaging = new ChildPaging(next);
+        int skippedPaths = 0;
+        for ( FSEntry child : children ) {
+            if ( nextPaging.isSkippingPaths() ) {
+                nextPaging.skipPath();
+                skippedPaths++;
+                continue;
+            }
+            if ( ! nextPaging.accept(child) ) {
+                break;
+            }
+        }
+
+        assertThat(skippedPaths).isEqualTo(10);
+        assertThat(nextPaging.page().entries()).isEqualTo(children.subList(10, 20));
+        assertThat(new ChildPaging(next.onlyFiles()).isSkippingPaths()).isFalse();
+        assertThat(new ChildPaging(next.sorted()).isSkippingPaths()).isFalse();
+    }
+}
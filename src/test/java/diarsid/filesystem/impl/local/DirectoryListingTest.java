@@ -0,0 +1,34 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DirectoryListingTest {
+
+    @Test
+    public void presenceAndCount() throws Exception {
+        Path root = Files.createTempDirectory("listing");
+        Path ignored = Files.createDirectory(root.resolve("ignored"));
+        Path file = Files.createFile(root.resolve("file"));
+        Files.createSymbolicLink(root.resolve("link"), file);
+
+        DirectoryListing listing = new DirectoryListing(Set.of(ignored)::contains);
+
+        assertThat(listing.count(root)).isEqualTo(2);
+        assertThat(listing.hasAny(root, DirectoryListing.Kind.ANY)).isTrue();
+        assertThat(listing.hasAny(root, DirectoryListing.Kind.FILES)).isTrue();
+        assertThat(listing.hasAny(root, DirectoryListing.Kind.DIRECTORIES)).isFalse();
+
+        Files.delete(file);
+        Files.createDirectory(file);
+
+        assertThat(listing.hasAny(root, DirectoryListing.Kind.FILES)).isFalse();
+        assertThat(listing.hasAny(root, DirectoryListing.Kind.DIRECTORIES)).isTrue();
+        assertThat(listing.hasAny(ignored, DirectoryListing.Kind.ANY)).isFalse();
+    }
+}
@@ -0,0 +1,46 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import diarsid.filesystem.api.FileSystemSettings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DirectoryMoveTest {
+
+    private final DirectoryMove directoryMove = new DirectoryMove(
+            new ParallelCopy(2, new FileTransfer(FileSystemSettings.Transfer.DEFAULT)),
+            new ParallelRemove(2, 100));
+
+    @Test
+    public void sameStoreMoveIsAtomicRename() throws Exception {
+        Path root = Files.createTempDirectory("move");
+        Path source = Files.createDirectories(root.resolve("source/inner"));
+        Files.createFile(source.resolve("file"));
+        Path target = Files.createDirectory(root.resolve("target")).resolve("source");
+
+        DirectoryMove.Moving moving = this.directoryMove.move(root.resolve("source"), target, FileTransfer.Progress.NONE);
+
+        assertThat(moving.isComplete()).isTrue();
+        assertThat(moving.source().entries()).hasSize(3);
+        assertThat(moving.removedSources()).containsExactly(source.resolve("file"), source, root.resolve("source"));
+        assertThat(Files.exists(target.resolve("inner/file"))).isTrue();
+        assertThat(Files.exists(root.resolve("source"))).isFalse();
+    }
+
+    @Test
+    public void existingTargetIsNotOverwritten() throws Exception {
+        Path root = Files.createTempDirectory("move");
+        Path source = Files.createDirectory(root.resolve("source"));
+        Path target = Files.createDirectories(root.resolve("target/source"));
+
+        assertThatThrownBy(() -> this.directoryMove.move(source, target, FileTransfer.Progress.NONE))
+                .isInstanceOf(FileAlreadyExistsException.class);
+        assertThat(Files.exists(source)).isTrue();
+    }
+}
@@ -0,0 +1,67 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DirectorySnapshotTest {
+
+    @Test
+    public void differenceAfterMissedEvents() throws Exception {
+        Path directory = Files.createTempDirectory("snapshot");
+        Path kept = Files.createFile(directory.resolve("kept"));
+        Path removed = Files.createFile(directory.resolve("removed"));
+        Path replaced = Files.createFile(directory.resolve("replaced"));
+        Path subdirectory = Files.createDirectory(directory.resolve("subdirectory"));
+
+        DirectorySnapshot snapshot = DirectorySnapshot.of(directory);
+
+        Files.delete(removed);
+        Files.setLastModifiedTime(replaced, FileTime.fromMillis(0));
+        Files.createFile(subdirectory.resolve("inner"));
+        Path addedFile = Files.createFile(directory.resolve("added-file"));
+        Path addedDirectory = Files.createDirectory(directory.resolve("added-directory"));
+
+        DirectorySnapshot.Difference difference = snapshot.takeStateOf(DirectorySnapshot.of(directory));
+
+        assertThat(difference.removed()).containsExactlyInAnyOrder(removed, replaced);
+        assertThat(difference.addedFiles()).containsExactlyInAnyOrder(addedFile, replaced);
+        assertThat(difference.addedDirectories()).containsExactly(addedDirectory);
+        assertThat(difference.removed()).doesNotContain(kept, subdirectory);
+
+        assertThat(snapshot.takeStateOf(DirectorySnapshot.of(directory)).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void entriesKnownFromEventsAreNotReported() throws Exception {
+        Path directory = Files.createTempDirectory("snapshot");
+        DirectorySnapshot snapshot = DirectorySnapshot.of(directory);
+
+        Path created = Files.createFile(directory.resolve("created"));
+        snapshot.created(created);
+
+        assertThat(snapshot.takeStateOf(DirectorySnapshot.of(directory)).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void entriesModifiedWithEventsAreNotReported() throws Exception {
+        Path directory = Files.createTempDirectory("snapshot");
+        Path modified = Files.createFile(directory.resolve("modified"));
+        DirectorySnapshot snapshot = DirectorySnapshot.of(directory);
+
+        Files.setLastModifiedTime(modified, FileTime.fromMillis(0));
+        snapshot.modified(modified);
+
+        Path created = Files.createFile(directory.resolve("created"));
+        snapshot.created(created);
+        Files.setLastModifiedTime(created, FileTime.fromMillis(0));
+
+        DirectorySnapshot.Difference difference = snapshot.takeStateOf(DirectorySnapshot.of(directory));
+        assertThat(difference.removed()).containsExactly(created);
+        assertThat(difference.addedFiles()).containsExactly(created);
+    }
+}
@@ -0,0 +1,78 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EntriesCacheTest {
+
+    private static LocalFile file(Path path) {
+        return new LocalFile(path, null);
+    }
+
+    private static LocalDirectory directory(Path path) {
+        return new LocalDirectory(path, null);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        EntriesCache cache = new EntriesCache(2);
+        Path a = Path.of("/a").toAbsolutePath();
+        Path b = Path.of("/b").toAbsolutePath();
+        Path c = Path.of("/c").toAbsolutePath();
+
+        LocalFile fileA = cache.get(a, LocalFile.class, EntriesCacheTest::file);
+        cache.get(b, LocalFile.class, EntriesCacheTest::file);
+        assertThat(cache.get(a, LocalFile.class, EntriesCacheTest::file)).isSameAs(fileA);
+
+        cache.get(c, LocalFile.class, EntriesCacheTest::file);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(a)).isSameAs(fileA);
+        assertThat(cache.get(b)).isNull();
+    }
+
+    @Test
+    public void invalidatesSubtrees() {
+        EntriesCache cache = new EntriesCache(10);
+        Path root = Path.of("/root").toAbsolutePath();
+        Path inner = root.resolve("inner");
+        Path sibling = Path.of("/root-sibling").toAbsolutePath();
+
+        cache.get(inner, LocalDirectory.class, EntriesCacheTest::directory);
+        cache.get(inner.resolve("file"), LocalFile.class, EntriesCacheTest::file);
+        cache.get(sibling, LocalFile.class, EntriesCacheTest::file);
+
+        cache.invalidate(List.of(root));
+
+        assertThat(cache.get(inner)).isNull();
+        assertThat(cache.get(inner.resolve("file"))).isNull();
+        assertThat(cache.get(sibling)).isNotNull();
+    }
+
+    @Test
+    public void replacesEntryOfAnotherType() {
+        EntriesCache cache = new EntriesCache(10);
+        Path path = Path.of("/path").toAbsolutePath();
+
+        cache.get(path, LocalFile.class, EntriesCacheTest::file);
+        LocalDirectory directory = cache.get(path, LocalDirectory.class, EntriesCacheTest::directory);
+
+        assertThat(cache.get(path)).isSameAs(directory);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void disabled() {
+        EntriesCache cache = new EntriesCache(0);
+        Path path = Path.of("/path").toAbsolutePath();
+
+        LocalFile file = cache.get(path, LocalFile.class, EntriesCacheTest::file);
+
+        assertThat(cache.get(path, LocalFile.class, EntriesCacheTest::file)).isNotSameAs(file);
+        assertThat(cache.get(path)).isNull();
+    }
+}
@@ -0,0 +1,52 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EntryAttributesTest {
+
+    @Test
+    public void readAndReread() throws Exception {
+        EntryAttributes.View view = EntryAttributes.View.supportedBy(FileSystems.getDefault());
+        Path root = Files.createTempDirectory("attributes");
+        Path file = Files.write(root.resolve("file"), new byte[] {1, 2, 3});
+        Path hidden = Files.createDirectory(root.resolve(".hidden"));
+
+        EntryAttributes fileAttributes = EntryAttributes.read(file, view, 0);
+        assertThat(fileAttributes.isDirectory()).isFalse();
+        assertThat(fileAttributes.size()).isEqualTo(3);
+        assertThat(fileAttributes.modificationTime()).isNotNull();
+
+        EntryAttributes directoryAttributes = EntryAttributes.read(hidden, view, Long.MAX_VALUE);
+        assertThat(directoryAttributes.isDirectory()).isTrue();
+        assertThat(directoryAttributes.isStale()).isFalse();
+        assertThat(fileAttributes.isHidden()).isFalse();
+
+        Files.write(file, new byte[] {1, 2, 3, 4, 5});
+        Thread.sleep(1);
+        assertThat(fileAttributes.isStale()).isTrue();
+        assertThat(fileAttributes.size()).isEqualTo(3);
+        assertThat(fileAttributes.reread(file).size()).isEqualTo(5);
+    }
+
+    @Test
+    public void linksHaveTypeOfTheirTargets() throws Exception {
+        EntryAttributes.View view = EntryAttributes.View.supportedBy(FileSystems.getDefault());
+        Path root = Files.createTempDirectory("attributes");
+        Path directory = Files.createDirectory(root.resolve("directory"));
+        Path file = Files.write(root.resolve("file"), new byte[] {1, 2, 3});
+        Path directoryLink = Files.createSymbolicLink(root.resolve("directory-link"), directory);
+        Path fileLink = Files.createSymbolicLink(root.resolve("file-link"), file);
+        Path brokenLink = Files.createSymbolicLink(root.resolve("broken-link"), root.resolve("missing"));
+
+        assertThat(EntryAttributes.read(directoryLink, view, 0).isDirectory()).isTrue();
+        assertThat(EntryAttributes.read(fileLink, view, 0).isDirectory()).isFalse();
+        assertThat(EntryAttributes.read(fileLink, view, 0).size()).isEqualTo(3);
+        assertThat(EntryAttributes.read(brokenLink, view, 0).isDirectory()).isFalse();
+    }
+}
@@ -0,0 +1,70 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import diarsid.files.Extension;
+import diarsid.files.Extensions;
+import diarsid.filesystem.api.TreeStats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExtensionStatsTest {
+
+    private final Extensions extensions = new Extensions();
+
+    @Test
+    public void groupsTreeByExtensionAndCategory() throws Exception {
+        Path root = Files.createTempDirectory("stats");
+        Path logs = Files.createDirectories(root.resolve("a").resolve("logs"));
+        Files.write(logs.resolve("1.log"), new byte[10]);
+        Files.write(logs.resolve("2.LOG"), new byte[20]);
+        Files.write(root.resolve("photo.jpg"), new byte[5]);
+        Files.write(root.resolve("photo.png"), new byte[7]);
+        Files.write(root.resolve("README"), new byte[3]);
+
+        ExtensionStats stats = new ExtensionStats(
+                new TreeTotals(4, path -> true, (path, isDirectory) -> false, this.extensions));
+
+        TreeStats<Extension> byExtension = stats.statsOf(root, TreeStats.GroupBy.EXTENSION);
+        TreeStats.Totals logTotals = byExtension.of(this.extensions.getBy("log"));
+        assertThat(logTotals.files()).isEqualTo(2);
+        assertThat(logTotals.bytes()).isEqualTo(30);
+        assertThat(byExtension.withoutExtension().bytes()).isEqualTo(3);
+        assertThat(byExtension.total().files()).isEqualTo(5);
+        assertThat(byExtension.isComplete()).isTrue();
+
+        TreeStats<Extension.Category> byCategory = stats.statsOf(root, TreeStats.GroupBy.CATEGORY);
+        assertThat(byCategory.of(Extension.Category.IMAGE).bytes()).isEqualTo(12);
+    }
+
+    @Test
+    public void recomputesOnlyChangedBranch() throws Exception {
+        Path root = Files.createTempDirectory("stats");
+        Path a = Files.createDirectory(root.resolve("a"));
+        Path b = Files.createDirectory(root.resolve("b"));
+        Files.write(a.resolve("file.txt"), new byte[10]);
+        Files.write(b.resolve("file.txt"), new byte[20]);
+
+        TreeTotals totals = new TreeTotals(2, path -> true, (path, isDirectory) -> false, this.extensions);
+        ExtensionStats stats = new ExtensionStats(totals);
+        TreeSizes treeSizes = new TreeSizes(totals);
+        Extension txt = this.extensions.getBy("txt");
+
+        assertThat(stats.statsOf(root, TreeStats.GroupBy.EXTENSION).of(txt).bytes()).isEqualTo(30);
+        assertThat(totals.cachedCount()).isEqualTo(3);
+
+        Path changed = Files.write(a.resolve("file.txt"), new byte[100]);
+        totals.invalidate(changed);
+        assertThat(totals.cachedCount()).isEqualTo(1);
+
+        assertThat(stats.statsOf(root, TreeStats.GroupBy.EXTENSION).of(txt).bytes()).isEqualTo(120);
+        assertThat(totals.cachedCount()).isEqualTo(3);
+
+        /* subtotals cached by stats are reused by sizes */
+        assertThat(treeSizes.sizeOf(root).bytes()).isEqualTo(120);
+        assertThat(totals.cachedCount()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,84 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import diarsid.filesystem.api.FileSystemSettings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileTransferTest {
+
+    private final FileTransfer transfer = new FileTransfer(FileSystemSettings.Transfer.chunked(1024, 1000));
+
+    @Test
+    public void largeFileIsTransferredInChunks() throws Exception {
+        Path directory = Files.createTempDirectory("transfer");
+        byte[] content = randomBytes(4500);
+        Path source = Files.write(directory.resolve("source"), content);
+        Path target = directory.resolve("target");
+
+        List<Long> progress = new ArrayList<>();
+        this.transfer.copy(source, target, (file, bytesDone, bytesAll) -> progress.add(bytesDone));
+
+        assertThat(Files.readAllBytes(target)).isEqualTo(content);
+        assertThat(progress).containsExactly(0L, 1000L, 2000L, 3000L, 4000L, 4500L);
+        assertThat(Files.exists(directory.resolve("target" + FileTransfer.PART_SUFFIX))).isFalse();
+        assertThat(Files.getLastModifiedTime(target)).isEqualTo(Files.getLastModifiedTime(source));
+    }
+
+    @Test
+    public void interruptedTransferIsResumedFromPartFile() throws Exception {
+        Path directory = Files.createTempDirectory("transfer");
+        byte[] content = randomBytes(3000);
+        Path source = Files.write(directory.resolve("source"), content);
+        Files.write(directory.resolve("target" + FileTransfer.PART_SUFFIX), Arrays.copyOf(content, 2000));
+        Files.writeString(directory.resolve("target" + FileTransfer.PART_SOURCE_SUFFIX), versionOf(source));
+        Path target = directory.resolve("target");
+
+        List<Long> progress = new ArrayList<>();
+        this.transfer.copy(source, target, (file, bytesDone, bytesAll) -> progress.add(bytesDone));
+
+        assertThat(Files.readAllBytes(target)).isEqualTo(content);
+        assertThat(progress).containsExactly(2000L, 3000L);
+        assertThat(Files.exists(directory.resolve("target" + FileTransfer.PART_SOURCE_SUFFIX))).isFalse();
+    }
+
+    @Test
+    public void partOfChangedSourceIsNotResumed() throws Exception {
+        Path directory = Files.createTempDirectory("transfer");
+        byte[] oldContent = randomBytes(3000);
+        Path source = Files.write(directory.resolve("source"), oldContent);
+        Files.write(directory.resolve("target" + FileTransfer.PART_SUFFIX), Arrays.copyOf(oldContent, 2000));
+        Files.writeString(directory.resolve("target" + FileTransfer.PART_SOURCE_SUFFIX), versionOf(source));
+
+        byte[] newContent = randomBytes(2500);
+        Files.write(source, newContent);
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 1000));
+        Path target = directory.resolve("target");
+
+        List<Long> progress = new ArrayList<>();
+        this.transfer.copy(source, target, (file, bytesDone, bytesAll) -> progress.add(bytesDone));
+
+        assertThat(Files.readAllBytes(target)).isEqualTo(newContent);
+        assertThat(progress).startsWith(0L);
+    }
+
+    private static String versionOf(Path source) throws Exception {
+        return FileTransfer.versionOf(Files.readAttributes(source, BasicFileAttributes.class));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,40 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LocalWatchEngineTest {
+
+    private static boolean dispatcherIsAlive() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().startsWith(LocalWatchEngine.class.getSimpleName()) && thread.isAlive());
+    }
+
+    @Test
+    public void destroyCancelsRegistrationsAndStopsDispatcher() throws Exception {
+        Path directory = Files.createTempDirectory("watch_engine");
+        LocalWatchEngine engine = new LocalWatchEngine(
+                FileSystems.getDefault(),
+                (kind, path) -> { },
+                registration -> { });
+
+        LocalWatchEngine.Registration registration = engine.register(directory);
+        assertThat(dispatcherIsAlive()).isTrue();
+
+        engine.destroy();
+
+        for ( int i = 0; i < 50 && dispatcherIsAlive(); i++ ) {
+            Thread.sleep(20);
+        }
+        assertThat(dispatcherIsAlive()).isFalse();
+
+        LocalWatchEngine.Registration again = engine.register(directory);
+        assertThat(again).isNotSameAs(registration);
+        engine.destroy();
+    }
+}
@@ -0,0 +1,69 @@
+package diarsid.filesystem.impl.local;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import diarsid.filesystem.api.FileSystemSettings;
+
+import static java.util.stream.Collectors.toList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelCopyTest {
+
+    @Test
+    public void copiesWholeTree() throws Exception {
+        Path source = Files.createTempDirectory("copy-source").resolve("tree");
+        Path target = Files.createTempDirectory("copy-target");
+
+        for ( int i = 0; i < 10; i++ ) {
+            Path directory = Files.createDirectories(source.resolve("d" + i).resolve("inner"));
+            for ( int j = 0; j < 20; j++ ) {
+                Files.write(directory.resolve("f" + j), ("content " + i + j).getBytes());
+            }
+        }
+
+        List<IOException> failures = new ParallelCopy(4, new FileTransfer(FileSystemSettings.Transfer.DEFAULT)).copy(source, target.resolve("tree"), FileTransfer.Progress.NONE);
+
+        assertThat(failures).isEmpty();
+        assertThat(relativeContentOf(target.resolve("tree"))).isEqualTo(relativeContentOf(source));
+        assertThat(Files.readAllBytes(target.resolve("tree/d3/inner/f7"))).isEqualTo("content 37".getBytes());
+    }
+
+    @Test
+    public void reportsFailureWhenTargetExists() throws Exception {
+        Path source = Files.createTempDirectory("copy-source");
+        Files.createFile(source.resolve("file"));
+        Path target = Files.createTempDirectory("copy-target");
+
+        List<IOException> failures = new ParallelCopy(2, new FileTransfer(FileSystemSettings.Transfer.DEFAULT)).copy(source, target, FileTransfer.Progress.NONE);
+
+        assertThat(failures).hasSize(1);
+    }
+
+    @Test
+    public void rejectsCopyIntoOwnSubdirectory() throws Exception {
+        Path source = Files.createTempDirectory("copy-source");
+        Path child = Files.createDirectory(source.resolve("child"));
+        Files.createFile(source.resolve("file"));
+
+        List<IOException> failures = new ParallelCopy(2, new FileTransfer(FileSystemSettings.Transfer.DEFAULT)).copy(source, child.resolve(source.getFileName().toString()), FileTransfer.Progress.NONE);
+
+        assertThat(failures).hasSize(1);
+        assertThat(relativeContentOf(child)).containsExactly("");
+    }
+
+    private static List<String> relativeContentOf(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths
+                    .map(path -> root.relativize(path).toString())
+                    .sorted()
+                    .collect(toList());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelRemoveTest {
+
+    @Test
+    public void removesTreeBottomUpInBatches() throws Exception {
+        Path root = Files.createTempDirectory("remove");
+        int created = 1;
+        for ( int i = 0; i < 5; i++ ) {
+            Path directory = Files.createDirectories(root.resolve("d" + i).resolve("inner"));
+            created = created + 2;
+            for ( int j = 0; j < 100; j++ ) {
+                Files.createFile(directory.resolve("f" + j));
+                created++;
+            }
+        }
+
+        List<List<Path>> batches = Collections.synchronizedList(new ArrayList<>());
+        ParallelRemove.Removal removal = new ParallelRemove(4, 50).remove(root, batches::add);
+
+        assertThat(removal.isComplete()).isTrue();
+        assertThat(removal.removedCount()).isEqualTo(created);
+        assertThat(Files.exists(root)).isFalse();
+        assertThat(batches).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(50));
+
+        List<Path> removed = new ArrayList<>();
+        batches.forEach(removed::addAll);
+        assertThat(removed).hasSize(created);
+        assertThat(removed.get(removed.size() - 1)).isEqualTo(root);
+        for ( int i = 0; i < removed.size(); i++ ) {
+            Path path = removed.get(i);
+            assertThat(removed.subList(0, i)).noneMatch(previous -> path.startsWith(previous));
+        }
+    }
+
+    @Test
+    public void removesOnlyLinkWhenRootIsLinkToDirectory() throws Exception {
+        Path target = Files.createTempDirectory("remove_target");
+        Path file = Files.createFile(target.resolve("file"));
+        Path link = Files.createSymbolicLink(Files.createTempDirectory("remove_link").resolve("link"), target);
+
+        List<Path> removed = Collections.synchronizedList(new ArrayList<>());
+        ParallelRemove.Removal removal = new ParallelRemove(2, 10).remove(link, removed::addAll);
+
+        assertThat(removal.isComplete()).isTrue();
+        assertThat(removed).containsExactly(link);
+        assertThat(Files.exists(link, NOFOLLOW_LINKS)).isFalse();
+        assertThat(Files.exists(file)).isTrue();
+    }
+
+    @Test
+    public void deliversBatchesOneAtTimeAndBeforeReturn() throws Exception {
+        Path root = Files.createTempDirectory("remove_slow");
+        for ( int i = 0; i < 4; i++ ) {
+            Path directory = Files.createDirectory(root.resolve("d" + i));
+            for ( int j = 0; j < 50; j++ ) {
+                Files.createFile(directory.resolve("f" + j));
+            }
+        }
+
+        AtomicInteger delivering = new AtomicInteger();
+        AtomicBoolean overlapped = new AtomicBoolean(false);
+        List<Path> removed = Collections.synchronizedList(new ArrayList<>());
+
+        ParallelRemove.Removal removal = new ParallelRemove(4, 10).remove(root, batch -> {
+            if ( delivering.incrementAndGet() > 1 ) {
+                overlapped.set(true);
+            }
+            try {
+                Thread.sleep(5);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            removed.addAll(batch);
+            delivering.decrementAndGet();
+        });
+
+        assertThat(removal.isComplete()).isTrue();
+        assertThat(overlapped.get()).isFalse();
+        assertThat(removed).hasSize((int) removal.removedCount());
+        assertThat(removed.get(removed.size() - 1)).isEqualTo(root);
+    }
+}
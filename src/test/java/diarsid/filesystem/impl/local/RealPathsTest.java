@@ -0,0 +1,59 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RealPathsTest {
+
+    @Test
+    public void resolvesAsToRealPath() throws Exception {
+        RealPaths realPaths = new RealPaths(100);
+        Path root = Files.createTempDirectory("real").toRealPath();
+        Path inner = Files.createDirectories(root.resolve("a").resolve("b"));
+        Path file = Files.createFile(inner.resolve("file"));
+        Path link = Files.createSymbolicLink(root.resolve("link"), root.resolve("a"));
+        Path relativeLink = Files.createSymbolicLink(inner.resolve("up"), Path.of(".."));
+
+        assertThat(realPaths.realPathOf(file)).isEqualTo(file.toRealPath());
+        assertThat(realPaths.realPathOf(link.resolve("b").resolve("file"))).isEqualTo(file);
+        assertThat(realPaths.realPathOf(relativeLink.resolve("b"))).isEqualTo(inner);
+        assertThat(realPaths.realPathOf(inner.resolve("..").resolve("b"))).isEqualTo(inner);
+        assertThat(realPaths.realPathOf(file)).isEqualTo(file);
+    }
+
+    @Test
+    public void invalidatesRemovedSubtrees() throws Exception {
+        RealPaths realPaths = new RealPaths(100);
+        Path root = Files.createTempDirectory("real").toRealPath();
+        Path directory = Files.createDirectory(root.resolve("directory"));
+        Path file = Files.createFile(directory.resolve("file"));
+
+        assertThat(realPaths.realPathOf(file)).isEqualTo(file);
+
+        Files.delete(file);
+        Files.delete(directory);
+        Files.createSymbolicLink(directory, root);
+        realPaths.invalidate(List.of(directory));
+
+        assertThat(realPaths.realPathOf(directory)).isEqualTo(root);
+        assertThatThrownBy(() -> realPaths.realPathOf(directory.resolve("file")))
+                .isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    public void worksBeyondCapacity() throws Exception {
+        RealPaths realPaths = new RealPaths(2);
+        Path root = Files.createTempDirectory("real").toRealPath();
+        Path deep = Files.createDirectories(root.resolve("a").resolve("b").resolve("c"));
+
+        assertThat(realPaths.realPathOf(deep)).isEqualTo(deep);
+        assertThat(realPaths.realPathOf(deep)).isEqualTo(deep);
+    }
+}
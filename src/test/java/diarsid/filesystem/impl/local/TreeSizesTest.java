@@ -0,0 +1,101 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import diarsid.files.Extensions;
+import diarsid.filesystem.api.TreeSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TreeSizesTest {
+
+    private final Extensions extensions = new Extensions();
+
+    @Test
+    public void computesAndRecomputesChangedBranch() throws Exception {
+        Path root = Files.createTempDirectory("size");
+        Path a = Files.createDirectories(root.resolve("a").resolve("a1"));
+        Path b = Files.createDirectory(root.resolve("b"));
+        Files.write(a.resolve("file"), new byte[10]);
+        Files.write(b.resolve("file"), new byte[20]);
+        Files.write(root.resolve("file"), new byte[5]);
+
+        TreeTotals totals = new TreeTotals(4, path -> true, (path, isDirectory) -> false, this.extensions);
+        TreeSizes treeSizes = new TreeSizes(totals);
+
+        TreeSize size = treeSizes.sizeOf(root);
+        assertThat(size.bytes()).isEqualTo(35);
+        assertThat(size.files()).isEqualTo(3);
+        assertThat(size.directories()).isEqualTo(3);
+        assertThat(size.isComplete()).isTrue();
+        assertThat(totals.cachedCount()).isEqualTo(4);
+
+        Path changed = Files.write(a.resolve("file"), new byte[100]);
+        totals.invalidate(changed);
+        assertThat(totals.cachedCount()).isEqualTo(1);
+
+        assertThat(treeSizes.sizeOf(root).bytes()).isEqualTo(125);
+        assertThat(totals.cachedCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void notWatchedSubtreesAreNotCached() throws Exception {
+        Path root = Files.createTempDirectory("size");
+        Path watched = Files.createDirectory(root.resolve("watched"));
+        Files.createDirectory(root.resolve("not_watched"));
+
+        TreeTotals totals = new TreeTotals(
+                2, path -> ! path.endsWith("not_watched"), (path, isDirectory) -> false, this.extensions);
+        TreeSizes treeSizes = new TreeSizes(totals);
+
+        assertThat(treeSizes.sizeOf(root).directories()).isEqualTo(2);
+        assertThat(totals.cachedCount()).isEqualTo(1);
+        assertThat(treeSizes.sizeOf(watched)).isNotNull();
+    }
+
+    @Test
+    public void ignoredSubtreesAreSkipped() throws Exception {
+        Path root = Files.createTempDirectory("size");
+        Path ignored = Files.createDirectories(root.resolve("ignored").resolve("inner"));
+        Files.write(ignored.resolve("file"), new byte[10]);
+        Files.write(root.resolve("file"), new byte[5]);
+
+        TreeSizes treeSizes = new TreeSizes(new TreeTotals(
+                2, path -> true, (path, isDirectory) -> isDirectory && path.endsWith("ignored"), this.extensions));
+
+        TreeSize size = treeSizes.sizeOf(root);
+        assertThat(size.bytes()).isEqualTo(5);
+        assertThat(size.files()).isEqualTo(1);
+        assertThat(size.directories()).isEqualTo(0);
+    }
+
+    @Test
+    public void changeElsewhereDuringComputationDoesNotPreventCaching() throws Exception {
+        Path root = Files.createTempDirectory("size");
+        Path a = Files.createDirectory(root.resolve("a"));
+        Path b = Files.createDirectory(root.resolve("b"));
+        Files.write(a.resolve("file"), new byte[10]);
+        Files.write(b.resolve("file"), new byte[20]);
+        Path elsewhere = Files.createTempDirectory("elsewhere").resolve("file");
+
+        TreeTotals[] totals = new TreeTotals[1];
+        totals[0] = new TreeTotals(
+                2,
+                path -> {
+                    totals[0].invalidate(elsewhere);
+                    if ( path.equals(b) ) {
+                        totals[0].invalidate(b.resolve("file"));
+                    }
+                    return true;
+                },
+                (path, isDirectory) -> false,
+                this.extensions);
+
+        assertThat(new TreeSizes(totals[0]).sizeOf(root).bytes()).isEqualTo(30);
+        /* a is cached, b and root are changed while being computed */
+        assertThat(totals[0].cachedCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,55 @@
+package diarsid.filesystem.impl.local;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TreeWalkTest {
+
+    @Test
+    public void walkKeepsTypesAndOrder() throws Exception {
+        Path root = Files.createTempDirectory("walk");
+        Path inner = Files.createDirectory(root.resolve("inner"));
+        Path file = Files.createFile(inner.resolve("file"));
+        Path link = Files.createSymbolicLink(root.resolve("link"), inner);
+
+        TreeWalk walk = TreeWalk.of(root);
+
+        assertThat(walk.entries()).hasSize(4);
+        assertThat(walk.directories()).containsExactlyInAnyOrder(root, inner);
+        assertThat(walk.entries().get(0).path()).isEqualTo(root);
+        assertThat(walk.pathsBottomUp().get(3)).isEqualTo(root);
+        assertThat(walk.pathsBottomUp().indexOf(file)).isLessThan(walk.pathsBottomUp().indexOf(inner));
+        assertThat(walk.entries())
+                .filteredOn(entry -> entry.path().equals(link))
+                .allMatch(entry -> ! entry.isDirectory());
+
+        Path newRoot = root.resolveSibling("moved");
+        TreeWalk.Entry relocated = walk.entries().get(walk.entries().size() - 1).relocated(root, newRoot);
+        assertThat(relocated.path().startsWith(newRoot)).isTrue();
+    }
+
+    @Test
+    public void linkToDirectoryPointsToDirectory() throws Exception {
+        Path root = Files.createTempDirectory("walk_links");
+        Path inner = Files.createDirectory(root.resolve("inner"));
+        Path file = Files.createFile(root.resolve("file"));
+        Path directoryLink = Files.createSymbolicLink(root.resolve("directory_link"), inner);
+        Path fileLink = Files.createSymbolicLink(root.resolve("file_link"), file);
+        Path brokenLink = Files.createSymbolicLink(root.resolve("broken_link"), root.resolve("missing"));
+
+        TreeWalk walk = TreeWalk.of(root);
+
+        assertThat(walk.entries())
+                .filteredOn(TreeWalk.Entry::pointsToDirectory)
+                .extracting(TreeWalk.Entry::path)
+                .containsExactlyInAnyOrder(root, inner, directoryLink);
+        assertThat(walk.directories()).doesNotContain(directoryLink);
+        assertThat(walk.entries())
+                .extracting(TreeWalk.Entry::path)
+                .contains(fileLink, brokenLink);
+    }
+}